@@ -0,0 +1,144 @@
+/* This class is used to replace files in a way that survives a crash. Content is first written to a temporary file
+ * next to the file, and then it is moved in place of the file in one step. If the program crashes the file is either
+ * the old one or the new one, never a half written one.
+ *
+ * A synced write also forces the temporary file to the disk before it is moved, and the move itself after, so that
+ * the same holds if the whole system crashes or loses power. Other writes leave it to the system when the content
+ * reaches the disk, which saves an fsync on every write.
+ *
+ * Files that are replaced this way are read into memory (see read), not memory mapped. A mapping keeps its file open
+ * until the mapping is garbage collected, and on Windows a file that is open can't be replaced.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class AtomicFiles {
+
+    /* USER INTERFACE */
+
+    // this method is used to get the temporary file that new content of a file is written to
+    public static File tempOf(File f) {
+
+        return new File(f.getPath() + ".tmp");
+    }
+
+    // this method is used to write new content of a file to its temporary file, see replace to move it in place
+    // if isSynced is true the content is forced to the disk. The temporary file is always closed, and is removed if
+    // writing fails. Returns the temporary file, throws exception if something goes wrong while writing
+    public static File writeTemp(File f, Content content, boolean isSynced) throws IOException {
+
+        File tmp = tempOf(f);
+        FileOutputStream fos = new FileOutputStream(tmp);
+        boolean isWritten = false;
+
+        try {
+
+            content.writeTo(fos);
+            if (isSynced) { // content must be on the disk before the file is moved in place
+
+                fos.getFD().sync();
+            }
+
+            isWritten = true;
+        }
+        finally {
+
+            fos.close();
+            if (!isWritten) {
+
+                tmp.delete();
+            }
+        }
+
+        return tmp;
+    }
+
+    // this method is used to move a temporary file in place of a file, it must be forced to the disk if isSynced is true
+    // if isSynced is true it also waits until the move itself is on the disk, by forcing the directory
+    // throws exception if something goes wrong while moving the file
+    public static void replace(File tmp, File f, boolean isSynced) throws IOException {
+
+        try {
+
+            Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException exception) { // file system can't replace atomically
+
+            Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        if (isSynced) {
+
+            syncDirectory(f);
+        }
+    }
+
+    // this method is used to replace the content of a file with bytes, see replace
+    // throws exception if something goes wrong while writing to file
+    public static void write(File f, byte[] bytes, boolean isSynced) throws IOException {
+
+        replace(writeTemp(f, out -> out.write(bytes), isSynced), f, isSynced);
+    }
+
+    // this method is used to read a whole file into a buffer on the heap, the file is closed when it has been read
+    // throws exception if something goes wrong while reading, or if the file is too large
+    public static ByteBuffer read(File f) throws IOException {
+
+        FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+
+        try {
+
+            if (channel.size() > Integer.MAX_VALUE - 8) { // one array can hold at most 2 GB
+
+                throw new IOException("Collection Is Too Large To Be Loaded: " + f);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+
+                if (channel.read(buffer) < 0) { // file became shorter while it was read, it ends where it ended
+
+                    break;
+                }
+            }
+
+            buffer.flip();
+            return buffer;
+        }
+        finally {
+
+            channel.close();
+        }
+    }
+
+    // this method is used to wait until changes to the directory of a file (new and moved files) are on the disk
+    // some systems can't open a directory, nothing is done then
+    public static void syncDirectory(File f) {
+
+        File directory = f.getAbsoluteFile().getParentFile();
+
+        try {
+
+            FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+            channel.force(true);
+            channel.close();
+        }
+        catch (IOException exception) { // directory can't be opened on this system
+
+        }
+    }
+
+    // this interface is content that is written to a file
+    public interface Content {
+
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,541 @@
+/* This class measures how fast DataCollection and Logger are, so that a change to how units are stored can be
+ * compared with how it was before. It is run on its own, through main, and needs no other libraries.
+ *
+ * For every collection size a collection of generated workouts is written once (one workout per date, three to
+ * six exercises each). Every benchmark then runs on a fresh copy of it: operations are repeated for a while to warm
+ * up, and then for a measured while. For every benchmark and size it prints
+ *  - ops/s, the number of operations per second
+ *  - alloc B/op, the bytes allocated per operation by the thread running the benchmark
+ *  - write B/op, the bytes the collection wrote to its files per operation (file, journal, offset index and
+ *    checkpoint, see CollectionMetrics), changes saved in the background are included as the collection is flushed
+ *    before it stops
+ *
+ * The formats benchmark compares the storage formats instead (see StorageFormat): for every size and format it
+ * prints the bytes on file, the time to open and read the whole collection (load ms) and the time to save a change
+ * to it, which writes the whole file (save ms). Only the format of the options is changed, journaled and write
+ * behind are turned off so that every change is written to the file at once.
+ *
+ * Arguments are given as key=value, all of them can be left out:
+ *  sizes=1000,10000,100000,1000000   collection sizes, in number of workouts
+ *  only=add,get                      benchmarks to run, all but formats if left out (see CASES)
+ *  format=TEXT journaled=false lazy=false writeBehind=false indexed=false segments=0 budget=0 offHeap=false
+ *                                    the StorageOptions collections are opened with, budget in bytes needs lazy=true
+ *  warmup=1 time=3                   seconds to warm up and to measure every benchmark
+ *  dir=benchmark                     where collections are written, removed when done
+ *
+ * e.g. java -Xmx4g Benchmark sizes=1000,10000 format=BINARY journaled=true
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class Benchmark {
+
+    // names of all benchmarks, in the order they are run
+    private static final String[] CASES = {
+        "extract", "add", "addTo", "get", "contains", "remove", "clearDataUnit",
+        "addExercise", "getWorkout", "hasWorkoutDate", "formats"
+    };
+
+    private static final String[] EXERCISES = { // name and unit of the exercises workouts are made of
+        "bench-press:kg", "squat:kg", "dead-lift:kg", "overhead-press:kg", "barbell-row:kg", "pull-up:kg",
+        "lunge:kg", "dip:kg", "plank:sec", "running:min"
+    };
+
+    private int[] sizes; // collection sizes, in number of workouts
+    private Set<String> only; // benchmarks to run
+    private StorageOptions options; // what collections are opened with
+    private long warmup; // nanoseconds to warm up every benchmark
+    private long time; // nanoseconds to measure every benchmark
+    private File dir; // where collections are written
+    private String[] labels; // dates of the workouts in the collection that is measured, in order
+    private Random random; // picks the workouts operations are made on
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, a benchmark set up by arguments given as key=value (see top of file)
+    public Benchmark(String[] args) {
+
+        HashMap<String, String> settings = new HashMap<>();
+        for (String arg : args) {
+
+            int split = arg.indexOf('=');
+            if (split < 0) {
+
+                throw new IllegalArgumentException("Arguments Are Given As key=value: " + arg);
+            }
+
+            settings.put(arg.substring(0, split), arg.substring(split + 1));
+        }
+
+        String[] sizes = settings.getOrDefault("sizes", "1000,10000,100000,1000000").split(",");
+        this.sizes = new int[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+
+            this.sizes[i] = Integer.parseInt(sizes[i].trim());
+        }
+
+        String all = String.join(",", Arrays.copyOf(CASES, CASES.length - 1)); // formats is only run if asked for
+        this.only = new HashSet<>(Arrays.asList(settings.getOrDefault("only", all).split(",")));
+        this.options = new StorageOptions();
+        this.options.setFormat(StorageFormat.valueOf(settings.getOrDefault("format", "TEXT").toUpperCase()));
+        this.options.setJournaled(Boolean.parseBoolean(settings.getOrDefault("journaled", "false")));
+        this.options.setLazyLoading(Boolean.parseBoolean(settings.getOrDefault("lazy", "false")));
+        this.options.setWriteBehind(Boolean.parseBoolean(settings.getOrDefault("writeBehind", "false")));
+        this.options.setFragmentIndexed(Boolean.parseBoolean(settings.getOrDefault("indexed", "false")));
+        this.options.setMemoryBudget(Long.parseLong(settings.getOrDefault("budget", "0")));
+        this.options.setOffHeap(Boolean.parseBoolean(settings.getOrDefault("offHeap", "false")));
+
+        int segments = Integer.parseInt(settings.getOrDefault("segments", "0"));
+        if (segments > 0) {
+
+            this.options.setSegmentCount(segments);
+        }
+
+        this.warmup = (long) (Double.parseDouble(settings.getOrDefault("warmup", "1")) * 1e9);
+        this.time = (long) (Double.parseDouble(settings.getOrDefault("time", "3")) * 1e9);
+        this.dir = new File(settings.getOrDefault("dir", "benchmark"));
+    }
+
+    /* INTERNAL */
+
+    // this method is used to get the date of workout number i, days 29 to 31 are skipped as Logger does not accept
+    // all of them
+    private static String dateOf(int i) {
+
+        return LocalDate.of(1000, 1, 1).plusMonths(i / 28).plusDays(i % 28).toString();
+    }
+
+    // this method is used to make an exercise, as it is logged (name_sets_reps_intensity)
+    private static String exerciseOf(Random random) {
+
+        String[] exercise = EXERCISES[random.nextInt(EXERCISES.length)].split(":");
+        int sets = 1 + random.nextInt(5);
+        int reps = 1 + random.nextInt(12);
+
+        if (exercise[1].equals("kg")) {
+
+            int halfKilos = 40 + random.nextInt(320); // 20kg to 180kg, in steps of 0.5kg
+            String weight = halfKilos % 2 == 0 ? Integer.toString(halfKilos / 2) : (halfKilos / 2) + ".5";
+            return exercise[0] + "_" + sets + "_" + reps + "_" + weight + "kg";
+        }
+
+        return exercise[0] + "_" + sets + "_" + reps + "_" + (10 + random.nextInt(50)) + exercise[1];
+    }
+
+    // this method is used to write a collection of size workouts to a directory, with the options of the benchmark
+    // throws exception if something goes wrong while writing to file
+    private void generate(File target, int size) throws IOException, Exception {
+
+        generate(target, size, this.options);
+    }
+
+    // this method is used to write a collection of size workouts to a directory, opened with options
+    // throws exception if something goes wrong while writing to file
+    private static void generate(File target, int size, StorageOptions options) throws IOException, Exception {
+
+        target.mkdirs();
+        Random random = new Random(size);
+        DataCollection collection = new DataCollection(new File(target, "workouts.txt").getPath(), options);
+
+        collection.batch(() -> {
+
+            for (int i = 0; i < size; i++) {
+
+                ArrayList<String> exercises = new ArrayList<>();
+                for (int j = 3 + random.nextInt(4); j > 0; j--) {
+
+                    exercises.add(exerciseOf(random));
+                }
+
+                collection.add(dateOf(i), exercises);
+            }
+        });
+
+        collection.close();
+    }
+
+    // this method is used to copy all files of one directory to another, the other is emptied first
+    // throws exception if something goes wrong while copying
+    private static void copy(File from, File to) throws IOException {
+
+        delete(to);
+        to.mkdirs();
+        for (File f : from.listFiles()) {
+
+            Files.copy(f.toPath(), new File(to, f.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.COPY_ATTRIBUTES); // same modification time, so the offset index is used
+        }
+    }
+
+    // this method is used to remove a directory and all files in it
+    private static void delete(File f) {
+
+        File[] files = f.listFiles();
+        if (files != null) {
+
+            for (File file : files) {
+
+                delete(file);
+            }
+        }
+
+        f.delete();
+    }
+
+    // this method is used to get the number of bytes all files in a directory take
+    private static long bytesIn(File dir) {
+
+        long bytes = 0;
+        for (File f : dir.listFiles()) {
+
+            bytes += f.length();
+        }
+
+        return bytes;
+    }
+
+    // this method is used to get the number of bytes the current thread has allocated, -1 if it is not known
+    private static long bytesAllocated() {
+
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+
+            return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+        }
+
+        return -1;
+    }
+
+    // this method is used to get a random date that has a workout
+    private String anyLabel() {
+
+        return this.labels[this.random.nextInt(this.labels.length)];
+    }
+
+    // this method is used to get the operation of a benchmark, made on a collection or logger opened on file
+    // the operation is given how many operations have been made before it, and returns false when it can not be
+    // made any more times (all workouts have been removed)
+    // throws exception if collection can not be opened
+    private Operation operationOf(String name, String path, Closer closer) throws IOException, Exception {
+
+        if (name.equals("extract")) {
+
+            LongAdder written = new LongAdder(); // bytes written by all collections opened, e.g. a new offset index
+            closer.written = written::sum;
+            return i -> {
+
+                DataCollection collection = new DataCollection(path, this.options);
+                collection.close();
+                written.add(collection.getMetrics().getBytesWritten());
+                return true;
+            };
+        }
+
+        if (name.equals("addExercise") || name.equals("getWorkout") || name.equals("hasWorkoutDate")) {
+
+            Logger logger = new Logger(path, this.options);
+            closer.flush = logger::flush;
+            closer.close = logger::close;
+            closer.written = () -> logger.getMetrics().getBytesWritten();
+
+            switch (name) {
+
+                case "addExercise":
+                    logger.getWorkout(this.anyLabel()); // the workout exercises are added to
+                    Random random = new Random(1);
+                    return i -> {
+
+                        logger.addExercise(exerciseOf(random));
+                        return true;
+                    };
+                case "getWorkout":
+                    return i -> {
+
+                        logger.getWorkout(this.anyLabel());
+                        return true;
+                    };
+                default: // every other date has no workout
+                    return i -> {
+
+                        logger.hasWorkoutDate(i % 2 == 0 ? this.anyLabel() : dateOf(this.labels.length + i));
+                        return true;
+                    };
+            }
+        }
+
+        DataCollection collection = new DataCollection(path, this.options);
+        closer.flush = collection::flush;
+        closer.close = collection::close;
+        closer.written = () -> collection.getMetrics().getBytesWritten();
+        Random random = new Random(1);
+
+        switch (name) {
+
+            case "add":
+                return i -> {
+
+                    collection.add(dateOf(this.labels.length + i), exerciseOf(random));
+                    return true;
+                };
+            case "addTo":
+                return i -> {
+
+                    collection.addTo(this.anyLabel(), exerciseOf(random));
+                    return true;
+                };
+            case "get":
+                return i -> {
+
+                    collection.get(this.anyLabel());
+                    return true;
+                };
+            case "contains": // every other label is not in collection
+                return i -> {
+
+                    collection.contains(i % 2 == 0 ? this.anyLabel() : dateOf(this.labels.length + i));
+                    return true;
+                };
+            case "remove":
+                List<String> left = new ArrayList<>(Arrays.asList(this.labels));
+                Collections.shuffle(left, new Random(1));
+                return i -> {
+
+                    if (i >= left.size()) {
+
+                        return false;
+                    }
+
+                    collection.remove(left.get(i));
+                    return true;
+                };
+            case "clearDataUnit":
+                return i -> {
+
+                    collection.clearDataUnit(this.anyLabel());
+                    return true;
+                };
+            default:
+                throw new IllegalArgumentException("No Benchmark Called: " + name);
+        }
+    }
+
+    // this method is used to run one benchmark on a copy of the collection in base, and print what it measured
+    // throws exception if an operation fails
+    private void run(String name, File base, int size) throws IOException, Exception {
+
+        File copy = new File(this.dir, "run");
+        copy(base, copy);
+        this.random = new Random(2);
+
+        Closer closer = new Closer();
+        Operation operation = this.operationOf(name, new File(copy, "workouts.txt").getPath(), closer);
+
+        int done = 0;
+        int warmupLimit = name.equals("remove") ? size / 2 : Integer.MAX_VALUE; // half of all units are left to measure
+        long end = System.nanoTime() + this.warmup;
+        while (System.nanoTime() < end && done < warmupLimit && operation.run(done)) {
+
+            done++;
+        }
+
+        closer.flush();
+        long allocated = bytesAllocated();
+        long written = closer.written();
+        long start = System.nanoTime();
+        end = start + this.time;
+        int measured = 0;
+
+        while ((measured == 0 || System.nanoTime() < end) && operation.run(done + measured)) {
+
+            measured++;
+        }
+
+        closer.flush(); // changes saved in the background are part of the operations
+        long elapsed = System.nanoTime() - start;
+        allocated = allocated < 0 ? -1 : (bytesAllocated() - allocated) / Math.max(1, measured);
+        written = (closer.written() - written) / Math.max(1, measured);
+        closer.close();
+
+        System.out.printf("%-16s %9d %10d %14.1f %14d %14d%n", name, size, measured, measured / (elapsed / 1e9),
+                allocated, written);
+        delete(copy);
+    }
+
+    // this method is used to measure the mean time of an operation in milliseconds, it is repeated for a while to
+    // warm up and then for a measured while, but always made at least once
+    // throws exception if the operation fails
+    private double measure(Operation operation) throws Exception {
+
+        long end = System.nanoTime() + this.warmup;
+        int done = 0;
+        while (System.nanoTime() < end) {
+
+            operation.run(done++);
+        }
+
+        long start = System.nanoTime();
+        end = start + this.time;
+        int measured = 0;
+        while (measured == 0 || System.nanoTime() < end) {
+
+            operation.run(done + measured++);
+        }
+
+        return (System.nanoTime() - start) / 1e6 / measured;
+    }
+
+    // this method is used to run the formats benchmark at one size, and print what it measured for every format
+    // throws exception if something goes wrong while writing collections
+    private void compareFormats(int size) throws IOException, Exception {
+
+        System.out.printf("%-16s %9s %10s %14s %14s %14s%n", "benchmark", "size", "format", "file B", "load ms",
+                "save ms");
+        this.random = new Random(2);
+
+        for (StorageFormat format : StorageFormat.values()) {
+
+            StorageOptions options = new StorageOptions();
+            options.setFormat(format);
+            options.setLazyLoading(this.options.isLazyLoading());
+            options.setOffHeap(this.options.isOffHeap());
+
+            File target = new File(this.dir, "formats");
+            delete(target);
+            generate(target, size, options);
+            long stored = bytesIn(target); // before changes are saved, which make the file larger
+            String path = new File(target, "workouts.txt").getPath();
+
+            double load = this.measure(i -> { // every unit is read, also those of a lazy collection
+
+                DataCollection loaded = new DataCollection(path, options);
+                loaded.forEachUnit(unit -> unit.getFragmentView());
+                loaded.close();
+                return true;
+            });
+
+            DataCollection collection = new DataCollection(path, options);
+            Random random = new Random(1);
+            double save = this.measure(i -> {
+
+                collection.addTo(this.anyLabel(), exerciseOf(random));
+                return true;
+            });
+
+            collection.close();
+            System.out.printf("%-16s %9d %10s %14d %14.2f %14.2f%n", "formats", size, format, stored, load,
+                    save);
+            delete(target);
+        }
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to run all benchmarks at all sizes
+    // throws exception if something goes wrong while writing collections, or if an operation fails
+    public void run() throws IOException, Exception {
+
+        System.out.println("options: format=" + this.options.getFormat() + " journaled=" + this.options.isJournaled()
+                + " lazy=" + this.options.isLazyLoading() + " writeBehind=" + this.options.isWriteBehind()
+                + " indexed=" + this.options.isFragmentIndexed() + " segments=" + this.options.getSegmentCount()
+                + " budget=" + this.options.getMemoryBudget() + " offHeap=" + this.options.isOffHeap());
+        System.out.printf("%-16s %9s %10s %14s %14s %14s%n", "benchmark", "size", "ops", "ops/s", "alloc B/op",
+                "write B/op");
+
+        try {
+
+            for (int size : this.sizes) {
+
+                File base = new File(this.dir, "base-" + size);
+                this.generate(base, size);
+                this.labels = new String[size];
+                for (int i = 0; i < size; i++) {
+
+                    this.labels[i] = dateOf(i);
+                }
+
+                System.out.println("-- " + size + " workouts, " + bytesIn(base) + " bytes on file");
+
+                for (String name : CASES) {
+
+                    if (name.equals("formats")) {
+
+                        if (this.only.contains(name)) {
+
+                            this.compareFormats(size);
+                        }
+                    }
+                    else if (this.only.contains(name)) {
+
+                        this.run(name, base, size);
+                    }
+                }
+
+                delete(base);
+            }
+        }
+        finally {
+
+            delete(this.dir);
+        }
+    }
+
+    // this method is used to run the benchmarks from the command line, see top of file for arguments
+    public static void main(String[] args) throws Exception {
+
+        new Benchmark(args).run();
+    }
+
+    // this interface is an operation that is measured, i is the number of operations made before it
+    // returns false if the operation could not be made
+    private interface Operation {
+
+        boolean run(int i) throws Exception;
+    }
+
+    // this interface is a step that saves what a benchmark opened, flush or close
+    private interface Step {
+
+        void run() throws IOException;
+    }
+
+    // this class flushes and closes what a benchmark opened, a collection or a logger, and counts what it wrote
+    private static class Closer {
+
+        private Step flush; // flushes the collection, null if nothing is open
+        private Step close; // closes the collection, null if nothing is open
+        private LongSupplier written; // bytes the collection has written to file, null if nothing is open
+
+        // this method is used to wait until all changes are saved
+        // throws exception if something goes wrong while writing to file
+        private void flush() throws IOException {
+
+            if (this.flush != null) {
+
+                this.flush.run();
+            }
+        }
+
+        // this method is used to close what was opened
+        // throws exception if something goes wrong while writing to file
+        private void close() throws IOException {
+
+            if (this.close != null) {
+
+                this.close.run();
+            }
+        }
+
+        // this method is used to get the number of bytes written to file by what was opened
+        private long written() {
+
+            return this.written != null ? this.written.getAsLong() : 0;
+        }
+    }
+}
@@ -0,0 +1,579 @@
+/* This class is used by DataCollection to read and write units in the compact binary format.
+ *
+ * A binary collection file starts with a header: the byte 0xDC, the bytes "CB" and a version byte. It is followed by
+ * the units, one after another until the end of the file. A unit is written as its label, the number of fragments it
+ * has and then every fragment. Labels and fragments are UTF-8 bytes that are prefixed with their length, and all lengths
+ * and counts are written as varints (7 bits per byte, the high bit tells if another byte follows), so a short
+ * fragment only costs one extra byte. An empty file is an empty collection.
+ *
+ * Since version 2 every unit is followed by a CRC32 checksum of its bytes, and the file ends with a footer that holds
+ * the number of bytes of all units and the bytes "DCBE". When a file is opened only the footer is checked, which
+ * tells if the file was completely written. The checksum of a unit is checked when the unit is loaded on its own
+ * (see FileFragmentSource).
+ *
+ * Since version 3 fragments are dictionary encoded. Every file has a dictionary of the components of its fragments,
+ * the parts between "_" (see FragmentDictionary), which is stored between the units and the footer together with a
+ * CRC32 checksum of its bytes, and is checked when it is read. A fragment is
+ * written as the number of its components and the id of every component, so an exercise name or a weight that is
+ * used thousands of times is only stored once. The dictionary of a file is kept when the file is rewritten, so that
+ * units that are not loaded can still be copied as they are. Components that none of the written units use anymore
+ * (of units that were removed or changed) are written as empty strings, so the ids of the others stay the same, and
+ * once more than half of the dictionary is empty it is made anew from the units: units that are not loaded are then
+ * read from the old file and encoded again instead of copied. Files of older versions can still be read, they are
+ * rewritten in version 3.
+ *
+ * Files used to start with the bytes "DCB", which a text collection can start with as well. The first byte is now
+ * 0xDC, which is not text: followed by "C" it is not valid UTF-8, and the version byte after the magic bytes is a
+ * control character that no label has. Files with the old header are still read, they are rewritten with the new
+ * one. A file only counts as binary if its header has a known version, any other file is read as text.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+public class BinaryFormat {
+
+    private static final byte[] MAGIC = {(byte) 0xDC, 'C', 'B'}; // first bytes of every binary collection file
+    private static final byte[] OLD_MAGIC = {'D', 'C', 'B'}; // first bytes of binary files written before MAGIC
+    private static final byte[] FOOTER_MAGIC = {'D', 'C', 'B', 'E'}; // last bytes of every binary collection file
+    private static final byte VERSION = 3; // version of the format
+    private static final byte FIRST_CHECKSUMMED_VERSION = 2; // first version with checksums and a footer
+    private static final byte FIRST_DICTIONARY_VERSION = 3; // first version with dictionary encoded fragments
+    public static final int HEADER_SIZE = MAGIC.length + 1; // magic bytes and version
+    private static final int CHECKSUM_SIZE = 4; // checksum after every unit
+    private static final int FOOTER_SIZE = 8 + FOOTER_MAGIC.length; // length of all units and magic bytes
+    private static final int MIN_EMPTY_COMPONENTS = 256; // a dictionary is never made anew with fewer empty components
+
+    /* INTERNAL */
+
+    // this method is used to compute the checksum of a unit
+    private static int checksum(byte[] bytes, int offset, int length) {
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    // this method is used to read the header of a file, magic bytes and version, returns null if the file is too short
+    // throws exception if something goes wrong while reading file
+    private static byte[] header(File f) throws IOException {
+
+        if (f.length() < HEADER_SIZE) {
+
+            return null;
+        }
+
+        byte[] header = new byte[HEADER_SIZE];
+        DataInputStream in = new DataInputStream(new FileInputStream(f));
+
+        try {
+
+            in.readFully(header);
+        }
+        finally {
+
+            in.close();
+        }
+
+        return header;
+    }
+
+    // this method is used to check if a header starts with specific magic bytes
+    private static boolean hasMagic(byte[] header, byte[] magic) {
+
+        return header[0] == magic[0] && header[1] == magic[1] && header[2] == magic[2];
+    }
+
+    // this method is used to check the footer of a file that is read into buffer, throws exception if it is broken
+    // returns where the units end, the dictionary (since version 3) goes from there to the footer
+    private static int checkFooter(ByteBuffer buffer, File f) throws IOException {
+
+        int footer = buffer.limit() - FOOTER_SIZE;
+        long length = footer >= HEADER_SIZE ? buffer.getLong(footer) : -1; // number of bytes of all units
+        boolean isWhole = buffer.get(3) >= FIRST_DICTIONARY_VERSION
+                ? length >= 0 && length <= footer - HEADER_SIZE
+                : length == footer - HEADER_SIZE;
+
+        for (int i = 0; isWhole && i < FOOTER_MAGIC.length; i++) {
+
+            isWhole = buffer.get(footer + 8 + i) == FOOTER_MAGIC[i];
+        }
+
+        if (!isWhole) {
+
+            throw new IOException("Collection Was Not Completely Written: " + f);
+        }
+
+        return (int) (HEADER_SIZE + length);
+    }
+
+    // this method is used to read the dictionary of a file that is read into buffer, null if the file has none
+    // throws exception if the file or its dictionary is broken
+    private static FragmentDictionary readDictionary(ByteBuffer buffer, File f) throws IOException {
+
+        if (buffer.get(3) < FIRST_DICTIONARY_VERSION) {
+
+            return null;
+        }
+
+        int start = checkFooter(buffer, f);
+        int end = buffer.limit() - FOOTER_SIZE - CHECKSUM_SIZE; // dictionary is followed by its checksum
+        byte[] bytes = new byte[Math.max(end - start, 0)];
+
+        if (end < start || buffer.get(start, bytes).getInt(end) != checksum(bytes, 0, bytes.length)) {
+
+            throw new IOException("Broken Checksum Of Dictionary In Collection: " + f);
+        }
+
+        ByteBuffer dictionary = ByteBuffer.wrap(bytes);
+        FragmentDictionary components = FragmentDictionary.read(dictionary);
+
+        if (dictionary.hasRemaining()) {
+
+            throw new IOException("Broken Dictionary In Collection: " + f);
+        }
+
+        return components;
+    }
+
+    // this method is used to read one component of a fragment, at the current position of a buffer
+    // throws exception if there is no component with the id that is read
+    private static String readComponent(ByteBuffer buffer, FragmentDictionary components) throws IOException {
+
+        String component = components.valueOf(readVarint(buffer));
+
+        if (component == null) {
+
+            throw new IOException("Broken Fragment At Byte: " + buffer.position());
+        }
+
+        return component;
+    }
+
+    // this method is used to write a fragment as the number of its components and the id of every component
+    // the ids are marked in used
+    private static void writeFragment(OutputStream out, String fragment, FragmentDictionary components, BitSet used)
+            throws IOException {
+
+        int count = 1;
+        for (int i = 0; i < fragment.length(); i++) {
+
+            count += fragment.charAt(i) == '_' ? 1 : 0;
+        }
+
+        writeVarint(out, count);
+        int start = 0;
+
+        for (int i = 0; i <= fragment.length(); i++) {
+
+            if (i == fragment.length() || fragment.charAt(i) == '_') {
+
+                int id = components.idOf(fragment.substring(start, i));
+                used.set(id);
+                writeVarint(out, id);
+                start = i + 1;
+            }
+        }
+    }
+
+    // this method is used to mark the ids of all components of a unit in used, bytes hold the unit as it is stored
+    // (since version 3), label and checksum included
+    // throws exception if the unit is broken
+    private static void markComponents(byte[] bytes, BitSet used) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, Math.max(bytes.length - CHECKSUM_SIZE, 0));
+        int length = readVarint(buffer);
+
+        if (length < 0 || length > buffer.remaining()) {
+
+            throw new IOException("Broken String At Byte: " + buffer.position());
+        }
+
+        buffer.position(buffer.position() + length); // label is not encoded
+        for (int count = readVarint(buffer); count > 0; count--) {
+
+            for (int parts = readVarint(buffer); parts > 0; parts--) {
+
+                int id = readVarint(buffer);
+
+                if (id < 0) {
+
+                    throw new IOException("Broken Fragment At Byte: " + buffer.position());
+                }
+
+                used.set(id);
+            }
+        }
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to write a number as a varint, returns the number of bytes written
+    public static int writeVarint(OutputStream out, int value) throws IOException {
+
+        int size = 1;
+        while ((value & ~0x7F) != 0) { // more than 7 bits left, write 7 of them and mark that more follows
+
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+            size++;
+        }
+
+        out.write(value);
+        return size;
+    }
+
+    // this method is used to write a string as its length followed by its UTF-8 bytes, returns the number of bytes
+    public static int writeString(OutputStream out, String value) throws IOException {
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int size = writeVarint(out, bytes.length);
+        out.write(bytes);
+        return size + bytes.length;
+    }
+
+    // this method is used to read a varint at the current position of a buffer
+    public static int readVarint(ByteBuffer buffer) throws IOException {
+
+        int value = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+
+            if (shift > 28 || !buffer.hasRemaining()) {
+
+                throw new IOException("Broken Number At Byte: " + buffer.position());
+            }
+
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    // this method is used to read a string, written by writeString, at the current position of a buffer
+    public static String readString(ByteBuffer buffer) throws IOException {
+
+        int length = readVarint(buffer);
+
+        if (length < 0 || length > buffer.remaining()) {
+
+            throw new IOException("Broken String At Byte: " + buffer.position());
+        }
+
+        String value;
+        if (buffer.hasArray()) { // no need to copy bytes out of the buffer
+
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        }
+        else {
+
+            byte[] bytes = new byte[length];
+            buffer.get(buffer.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    // this method is used to check if a binary file is written in an older version, without checksums or dictionary
+    // throws exception if something goes wrong while reading file
+    // a file with the old magic bytes is also outdated, so that it gets the new ones
+    public static boolean isOutdated(File f) throws IOException {
+
+        if (!isBinary(f)) {
+
+            return false;
+        }
+
+        byte[] header = header(f);
+        return header[3] < VERSION || hasMagic(header, OLD_MAGIC);
+    }
+
+    // this method is used to check if a file is a binary collection file, its header must have magic bytes (new or
+    // old) and a known version, any other file is a text file, also one that starts with "DCB"
+    // throws exception if something goes wrong while reading file
+    public static boolean isBinary(File f) throws IOException {
+
+        byte[] header = header(f);
+
+        return header != null && (hasMagic(header, MAGIC) || hasMagic(header, OLD_MAGIC))
+                && header[3] >= 1 && header[3] <= VERSION;
+    }
+
+    // this method is used to read all units in a binary file and add them to a list of units
+    // if positions is not null, the start and length (in bytes) of every unit is added to it, see UnitIndex
+    // throws exception if something goes wrong while reading, or if the file is broken
+    public static void load(File f, ArrayList<DataUnit> u, ArrayList<long[]> positions) throws IOException {
+
+        ByteBuffer buffer = AtomicFiles.read(f);
+
+        if (buffer.limit() == 0) { // empty collection
+
+            return;
+        }
+
+        if (buffer.limit() < HEADER_SIZE || buffer.get(3) > VERSION) {
+
+            throw new IOException("Unknown Binary Format In Collection: " + f);
+        }
+
+        boolean isChecksummed = buffer.get(3) >= FIRST_CHECKSUMMED_VERSION;
+        FragmentDictionary components = readDictionary(buffer, f); // null before version 3
+        buffer.position(HEADER_SIZE);
+        buffer.limit(isChecksummed ? checkFooter(buffer, f) : buffer.limit()); // only the footer is checked
+
+        while (buffer.hasRemaining()) {
+
+            int start = buffer.position();
+            String label = readString(buffer);
+            u.add(DataUnit.restore(label, components != null ? readFragments(buffer, components) : readFragments(buffer)));
+
+            if (isChecksummed) { // checked when a unit is loaded on its own, not when the whole file is
+
+                if (buffer.remaining() < CHECKSUM_SIZE) {
+
+                    throw new IOException("Broken Unit At Byte: " + start);
+                }
+
+                buffer.position(buffer.position() + CHECKSUM_SIZE);
+            }
+
+            if (positions != null) {
+
+                positions.add(new long[] {start, buffer.position() - start});
+            }
+        }
+    }
+
+    // this method is used to read the fragment count and fragments of a unit, at the current position of a buffer
+    // throws exception if the unit is broken
+    public static ArrayList<String> readFragments(ByteBuffer buffer) throws IOException {
+
+        int count = readVarint(buffer);
+
+        if (count < 0 || count > buffer.remaining()) { // every fragment takes at least one byte
+
+            throw new IOException("Broken Unit At Byte: " + buffer.position());
+        }
+
+        ArrayList<String> fragments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+
+            fragments.add(readString(buffer));
+        }
+
+        return fragments;
+    }
+
+    // this method is used to read the fragment count and dictionary encoded fragments of a unit (since version 3), at
+    // the current position of a buffer, components is the dictionary of the file
+    // throws exception if the unit is broken
+    public static ArrayList<String> readFragments(ByteBuffer buffer, FragmentDictionary components) throws IOException {
+
+        int count = readVarint(buffer);
+
+        if (count < 0 || count > buffer.remaining()) { // every fragment takes at least one byte
+
+            throw new IOException("Broken Unit At Byte: " + buffer.position());
+        }
+
+        ArrayList<String> fragments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+
+            int parts = readVarint(buffer);
+
+            if (parts < 1 || parts > buffer.remaining()) { // every component takes at least one byte
+
+                throw new IOException("Broken Fragment At Byte: " + buffer.position());
+            }
+
+            String first = readComponent(buffer, components);
+            if (parts == 1) { // no need to build a new string
+
+                fragments.add(first);
+                continue;
+            }
+
+            StringBuilder fragment = new StringBuilder(first);
+            for (int j = 1; j < parts; j++) {
+
+                fragment.append('_').append(readComponent(buffer, components));
+            }
+
+            fragments.add(fragment.toString());
+        }
+
+        return fragments;
+    }
+
+    // this method is used to read the dictionary of a binary file, null if the file is of a version without one
+    // throws exception if something goes wrong while reading, or if the file is broken
+    public static FragmentDictionary readDictionary(File f) throws IOException {
+
+        ByteBuffer buffer = AtomicFiles.read(f);
+
+        if (buffer.limit() < HEADER_SIZE) { // empty collection
+
+            return null;
+        }
+
+        return readDictionary(buffer, f);
+    }
+
+    // this method is used to move the position of a buffer past a unit without reading it, checksum not included
+    // throws exception if the unit is broken
+    public static void skipUnit(ByteBuffer buffer) throws IOException {
+
+        int count = -1; // the label is skipped first, it has no count
+
+        do {
+
+            int length = readVarint(buffer);
+
+            if (length < 0 || length > buffer.remaining()) {
+
+                throw new IOException("Broken String At Byte: " + buffer.position());
+            }
+
+            buffer.position(buffer.position() + length);
+            count = count < 0 ? readVarint(buffer) : count - 1;
+        } while (count > 0);
+    }
+
+    // this method is used to read a whole unit, label and checksum included, the buffer must hold only the unit
+    // only the fragments are returned, used to load one unit at a time (see FileFragmentSource)
+    // components is the dictionary of the file the unit is stored in (see readDictionary)
+    // throws exception if the unit is broken, or if its checksum does not match
+    public static ArrayList<String> readUnit(ByteBuffer buffer, FragmentDictionary components) throws IOException {
+
+        int end = buffer.limit() - CHECKSUM_SIZE;
+
+        if (end < 0 || checksum(buffer.array(), buffer.arrayOffset(), end) != buffer.getInt(end)) {
+
+            throw new IOException("Broken Checksum Of Unit");
+        }
+
+        buffer.limit(end);
+        readString(buffer); // label is already known
+        return readFragments(buffer, components);
+    }
+
+    // this method is used to write all units in the binary format to a stream, the stream is flushed but not closed
+    // a unit that is not loaded and is stored in the binary format is copied as it is, without loading it, the
+    // dictionary of the file it is stored in is then kept and new components are added to it, unless most of the
+    // dictionary is empty, then it is made anew and such units are read and encoded again (see top of file)
+    // returns the start, length and version of every unit in the stream (see DataCollection.writeUnits)
+    // throws exception if something goes wrong while writing to stream
+    public static long[] write(OutputStream stream, ArrayList<DataUnit> units) throws IOException {
+
+        BufferedOutputStream out = new BufferedOutputStream(stream, 64 * 1024);
+        DataOutputStream data = new DataOutputStream(out); // writes checksums and footer
+        ByteArrayOutputStream scratch = new ByteArrayOutputStream(); // one unit, so that its checksum can be computed
+        long[] positions = new long[units.size() * 3];
+        long position = 0;
+        FragmentDictionary stored = null; // dictionary of the file that units are copied from, null if none are
+
+        for (DataUnit unit : units) {
+
+            FragmentSource source = unit.getSource();
+            if (!unit.isLoaded() && source != null && source.getDictionary() != null) {
+
+                stored = source.getDictionary();
+                break;
+            }
+        }
+
+        FragmentDictionary rebuilt = null; // dictionary that is made anew, units encoded with it are encoded again
+        int empty = stored != null ? stored.countEmpty() : 0;
+
+        if (empty >= MIN_EMPTY_COMPONENTS && empty > stored.size() / 2) {
+
+            rebuilt = stored;
+            stored = null;
+        }
+
+        FragmentDictionary components = stored != null ? stored.copy() : new FragmentDictionary();
+        BitSet used = new BitSet(components.size()); // ids of components that the written units use
+
+        if (!units.isEmpty()) { // an empty collection is an empty file, just like in the text format
+
+            out.write(MAGIC);
+            out.write(VERSION);
+            position = HEADER_SIZE;
+        }
+
+        for (int i = 0; i < units.size(); i++) {
+
+            DataUnit unit = units.get(i);
+            FragmentSource source = unit.getSource();
+            long start = position;
+
+            positions[i * 3 + 2] = unit.getVersion(); // taken first, so a later change makes the position outdated
+
+            if (!unit.isLoaded() && source != null && stored != null && source.getDictionary() == stored) {
+
+                scratch.reset();
+                source.copyTo(scratch);
+                byte[] bytes = scratch.toByteArray();
+                markComponents(bytes, used);
+                out.write(bytes);
+                position += bytes.length;
+            }
+            else {
+
+                ArrayList<String> fragments;
+                if (!unit.isLoaded() && source != null && rebuilt != null && source.getDictionary() == rebuilt) {
+
+                    scratch.reset(); // read without loading the unit, so it does not have to fit in memory
+                    source.copyTo(scratch);
+                    fragments = readUnit(ByteBuffer.wrap(scratch.toByteArray()), rebuilt);
+                }
+                else {
+
+                    fragments = unit.getFragments();
+                }
+
+                scratch.reset();
+                writeString(scratch, unit.getLabel());
+                writeVarint(scratch, fragments.size());
+
+                for (String fragment : fragments) {
+
+                    writeFragment(scratch, fragment, components, used);
+                }
+
+                byte[] bytes = scratch.toByteArray();
+                out.write(bytes);
+                data.writeInt(checksum(bytes, 0, bytes.length));
+                position += bytes.length + CHECKSUM_SIZE;
+            }
+
+            positions[i * 3] = start;
+            positions[i * 3 + 1] = position - start;
+        }
+
+        if (!units.isEmpty()) {
+
+            scratch.reset();
+            components.write(scratch, used);
+            scratch.writeTo(out);
+            data.writeInt(checksum(scratch.toByteArray(), 0, scratch.size()));
+            data.writeLong(position - HEADER_SIZE);
+            data.write(FOOTER_MAGIC);
+        }
+
+        out.flush();
+        return positions;
+    }
+}
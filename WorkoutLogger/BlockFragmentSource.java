@@ -0,0 +1,240 @@
+/* This class is a FragmentSource for a unit that is stored in a compressed collection file (see CompressedFormat).
+ * Units are compressed together in blocks, so all units of a block share the block, which knows where it is in the
+ * file and which unit is where once it has been inflated. A unit knows which unit of its block it is.
+ *
+ * When a unit is loaded only its block is inflated. The inflated block is kept for as long as memory allows, so
+ * that the other units of the block can be loaded without inflating it again.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.Inflater;
+
+public class BlockFragmentSource implements FragmentSource {
+
+    private Block block; // where the unit is stored
+    private int slot; // which unit of the block it is, the first one is 0
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, the unit number slot of block
+    private BlockFragmentSource(Block block, int slot) {
+
+        this.block = block;
+        this.slot = slot;
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to make a source for every unit of a compressed file, in the order the units are stored in
+    // positions holds the start, length and version of every unit, three numbers per unit, where start and length
+    // are those of the block the unit is stored in (see CompressedFormat.write)
+    // fragments are interned in dictionary when they are loaded, and loads are counted in metrics, both can be null
+    public static ArrayList<FragmentSource> sourcesOf(File f, long[] positions, int count, FragmentDictionary dictionary,
+                                                      CollectionMetrics metrics) {
+
+        ArrayList<FragmentSource> sources = new ArrayList<>(count);
+        Block block = null;
+
+        for (int i = 0; i < count; i++) {
+
+            if (block == null || block.offset != positions[i * 3]) { // units of a block are stored one after another
+
+                block = new Block(f, positions[i * 3], (int) positions[i * 3 + 1], dictionary, metrics);
+            }
+
+            sources.add(new BlockFragmentSource(block, block.count++));
+        }
+
+        return sources;
+    }
+
+    // this method is used to check if the units from first on are all the units of the block of this unit, in order,
+    // and none of them is loaded, the whole block can then be copied as it is (see copyTo)
+    // the version of every checked unit is added to positions before it is checked (see DataCollection.writeUnits)
+    // returns the number of units in the block, or 0 if the block can not be copied
+    public int wholeBlockAt(ArrayList<DataUnit> units, int first, long[] positions) {
+
+        if (this.slot != 0 || first + this.block.count > units.size()) {
+
+            return 0;
+        }
+
+        for (int i = first; i < first + this.block.count; i++) {
+
+            DataUnit unit = units.get(i);
+            positions[i * 3 + 2] = unit.getVersion(); // taken first, so a later change makes the position outdated
+            FragmentSource source = unit.getSource();
+
+            if (unit.isLoaded() || !(source instanceof BlockFragmentSource)) {
+
+                return 0;
+            }
+
+            BlockFragmentSource stored = (BlockFragmentSource) source;
+            if (stored.block != this.block || stored.slot != i - first) {
+
+                return 0;
+            }
+        }
+
+        return this.block.count;
+    }
+
+    @Override
+    public ArrayList<String> load() throws IOException {
+
+        return this.block.unit(this.slot);
+    }
+
+    @Override
+    public StorageFormat getFormat() {
+
+        return StorageFormat.COMPRESSED;
+    }
+
+    // units are compressed as they are, without a dictionary
+    @Override
+    public FragmentDictionary getDictionary() {
+
+        return null;
+    }
+
+    // the whole block is copied, not only the unit (see wholeBlockAt)
+    @Override
+    public long copyTo(OutputStream out) throws IOException {
+
+        out.write(this.block.read().array(), 0, this.block.length);
+        return this.block.length;
+    }
+
+    // this class is a block of a compressed file, shared by the units stored in it
+    private static class Block {
+
+        private File file; // where the block is stored
+        private long offset; // where in the file the block starts
+        private int length; // number of bytes the block takes
+        private int count; // number of units in the block
+        private FragmentDictionary dictionary; // fragments are interned in this when they are loaded, can be null
+        private CollectionMetrics metrics; // loads and bytes read are counted in this, can be null
+        private SoftReference<ByteBuffer> inflated; // the units of the block, dropped if memory runs low
+        private int[] starts; // where every unit starts in the inflated block, null if it has not been inflated
+
+        // ctor 1, a block that takes length bytes from offset in file
+        private Block(File file, long offset, int length, FragmentDictionary dictionary, CollectionMetrics metrics) {
+
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+            this.dictionary = dictionary;
+            this.metrics = metrics;
+        }
+
+        // this method is used to read the compressed bytes of the block
+        // throws exception if something goes wrong while reading, or if the file is shorter than expected
+        private ByteBuffer read() throws IOException {
+
+            ByteBuffer buffer = ByteBuffer.allocate(this.length);
+            FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ);
+
+            try {
+
+                while (buffer.hasRemaining()) {
+
+                    if (channel.read(buffer, this.offset + buffer.position()) < 0) {
+
+                        throw new IOException("Block Is Cut Short In Collection: " + this.file);
+                    }
+                }
+            }
+            finally {
+
+                channel.close();
+            }
+
+            buffer.flip();
+
+            if (this.metrics != null) {
+
+                this.metrics.read(this.length);
+            }
+
+            return buffer;
+        }
+
+        // this method is used to get the inflated units of the block, the block is inflated if it is not kept
+        // throws exception if something goes wrong while reading, or if the block is broken
+        private synchronized ByteBuffer inflated() throws IOException {
+
+            ByteBuffer units = this.inflated == null ? null : this.inflated.get();
+
+            if (units == null) {
+
+                ByteBuffer block = this.read();
+                Inflater inflater = new Inflater();
+
+                try {
+
+                    units = CompressedFormat.inflate(block, inflater, this.file);
+                }
+                finally {
+
+                    inflater.end();
+                }
+
+                if (this.starts == null) { // units are found once, where they start does not change
+
+                    this.starts = new int[block.getInt(4)];
+                    ByteBuffer scan = units.duplicate();
+
+                    for (int i = 0; i < this.starts.length; i++) {
+
+                        this.starts[i] = scan.position();
+                        BinaryFormat.skipUnit(scan);
+                    }
+                }
+
+                this.inflated = new SoftReference<>(units);
+            }
+
+            return units.duplicate(); // every reader gets a position of its own
+        }
+
+        // this method is used to read the fragments of unit number slot of the block
+        // throws exception if something goes wrong while reading, or if the block is broken
+        private ArrayList<String> unit(int slot) throws IOException {
+
+            long start = System.nanoTime();
+            ByteBuffer units = this.inflated();
+
+            if (slot >= this.starts.length) {
+
+                throw new IOException("No DataUnit Found In Collection: " + this.file);
+            }
+
+            units.position(this.starts[slot]);
+            BinaryFormat.readString(units); // label is already known
+            ArrayList<String> fragments = BinaryFormat.readFragments(units);
+
+            if (this.dictionary != null) {
+
+                this.dictionary.internAll(fragments);
+            }
+
+            if (this.metrics != null) {
+
+                this.metrics.record(CollectionMetrics.Operation.LOAD, start);
+            }
+
+            return fragments;
+        }
+    }
+}
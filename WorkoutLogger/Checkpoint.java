@@ -0,0 +1,211 @@
+/* This class is used by DataCollection to start up without reading its collection file. A checkpoint is a sidecar
+ * file "<collection>.ckpt" that holds all units of the collection together with a stamp of the collection file and
+ * journal the units were saved in.
+ *
+ * Workouts repeat the same fragments over and over, so a checkpoint starts with a table of every distinct fragment
+ * (see FragmentDictionary), followed by the units. A unit is written as its label, the number of fragments it has
+ * and the id of every fragment in the table, all as varints and length prefixed strings (see BinaryFormat). When
+ * it is read only the distinct fragments and the labels become Strings. The checkpoint ends with a CRC32 checksum.
+ *
+ * The stamp holds the length, modification time and file key (inode) of the collection file and the length of the
+ * journal. Files are always replaced by moving a new file in place, so every rewrite of the collection file gives it
+ * a new file key, and every change appended to the journal makes it longer. If the stamp of a checkpoint is not the
+ * stamp of the files as they are now, the checkpoint is outdated and is not used.
+ *
+ * A checkpoint is read into memory (see AtomicFiles.read), and is written to a temporary file first and then moved in place
+ * (see AtomicFiles). A checkpoint that is broken or can't be read is not used, the collection file is read instead.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+public class Checkpoint {
+
+    private static final byte[] MAGIC = {'D', 'C', 'K'}; // first bytes of every checkpoint file
+    private static final byte VERSION = 1; // version of the format
+    private static final int CHECKSUM_SIZE = 4; // checksum at the end of every checkpoint
+
+    private File file; // where the checkpoint is stored
+    private String stamp; // stamp of the last checkpoint that was read or written, null if none has been
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, connects to the checkpoint of the collection file f, the checkpoint does not have to exist
+    public Checkpoint(File f) {
+
+        this.file = new File(f.getPath() + ".ckpt");
+    }
+
+    /* INTERNAL */
+
+    // this method is used to check the checksum at the end of a checkpoint, of everything from the current position
+    private static boolean isWhole(ByteBuffer buffer) {
+
+        int end = buffer.limit() - CHECKSUM_SIZE;
+
+        if (end < buffer.position()) {
+
+            return false;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().limit(end));
+        return (int) crc.getValue() == buffer.getInt(end);
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to make the stamp of a collection file f and its journal, journalLength is the length of
+    // the journal as the collection knows it (see Journal.length), 0 if there is none
+    // throws exception if something goes wrong while reading the attributes of f
+    public static String stampOf(File f, long journalLength) throws IOException {
+
+        BasicFileAttributes attributes = Files.readAttributes(f.toPath(), BasicFileAttributes.class);
+        Object key = attributes.fileKey(); // null on systems without file keys
+
+        return attributes.size() + "/" + attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) + "/"
+                + (key == null ? "" : key) + "/" + journalLength;
+    }
+
+    // this method is used to read all units of the checkpoint and add them to a list of units, if its stamp is stamp
+    // fragments are interned in dictionary (see FragmentDictionary), every distinct fragment only once, dictionary
+    // can be null
+    // returns the number of bytes read, or -1 if there is no checkpoint or it is outdated or broken, nothing is
+    // added to the list then
+    public synchronized long read(ArrayList<DataUnit> u, String stamp, FragmentDictionary dictionary) {
+
+        if (!this.file.exists()) {
+
+            return -1;
+        }
+
+        try {
+
+            ByteBuffer buffer = AtomicFiles.read(this.file); // a checkpoint that is too large is not used
+
+            for (int i = 0; i < MAGIC.length + 1; i++) {
+
+                if (!buffer.hasRemaining() || buffer.get() != (i < MAGIC.length ? MAGIC[i] : VERSION)) {
+
+                    return -1;
+                }
+            }
+
+            if (!BinaryFormat.readString(buffer).equals(stamp) || !isWhole(buffer)) {
+
+                return -1;
+            }
+
+            buffer.limit(buffer.limit() - CHECKSUM_SIZE);
+            FragmentDictionary fragments = FragmentDictionary.read(buffer);
+            String[] values = new String[fragments.size()]; // id -> the equal fragment of dictionary
+
+            for (int i = 0; i < values.length; i++) {
+
+                values[i] = dictionary != null ? dictionary.intern(fragments.valueOf(i)) : fragments.valueOf(i);
+            }
+
+            int count = BinaryFormat.readVarint(buffer);
+            ArrayList<DataUnit> restored = new ArrayList<>(); // added to u only if the whole checkpoint can be read
+
+            for (int i = 0; i < count; i++) {
+
+                String label = BinaryFormat.readString(buffer);
+                int size = BinaryFormat.readVarint(buffer);
+
+                if (size < 0 || size > buffer.remaining()) { // every fragment takes at least one byte
+
+                    return -1;
+                }
+
+                ArrayList<String> unit = new ArrayList<>(size);
+                for (int j = 0; j < size; j++) {
+
+                    unit.add(values[BinaryFormat.readVarint(buffer)]);
+                }
+
+                restored.add(DataUnit.restore(label, unit));
+            }
+
+            if (buffer.hasRemaining()) {
+
+                return -1;
+            }
+
+            u.addAll(restored);
+            this.stamp = stamp;
+            return buffer.capacity();
+        }
+        catch (IOException | RuntimeException exception) { // broken checkpoint, the collection file is read instead
+
+            return -1;
+        }
+    }
+
+    // this method is used to write units to memory, as the content of a checkpoint with the stamp stamp
+    // the units must not change while this runs, writing the bytes to file can be done after (see write)
+    // throws exception if something goes wrong while writing
+    public static ByteArrayOutputStream image(ArrayList<DataUnit> units, String stamp) throws IOException {
+
+        FragmentDictionary fragments = new FragmentDictionary(); // every distinct fragment, written once
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        BinaryFormat.writeVarint(body, units.size());
+
+        for (DataUnit unit : units) {
+
+            List<String> view = unit.getFragmentView();
+            BinaryFormat.writeString(body, unit.getLabel());
+            BinaryFormat.writeVarint(body, view.size());
+
+            for (String fragment : view) {
+
+                BinaryFormat.writeVarint(body, fragments.idOf(fragment));
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.size() + 1024);
+        bytes.write(MAGIC);
+        bytes.write(VERSION);
+        BinaryFormat.writeString(bytes, stamp);
+        int start = bytes.size(); // checksum covers everything after the stamp
+
+        fragments.write(bytes);
+        body.writeTo(bytes);
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray(), start, bytes.size() - start);
+        new DataOutputStream(bytes).writeInt((int) crc.getValue());
+        return bytes;
+    }
+
+    // this method is used to replace the checkpoint with content made by image, stamp is the stamp it was made with
+    // returns the number of bytes written, throws exception if something goes wrong while writing to file
+    public synchronized long write(ByteArrayOutputStream image, String stamp, boolean isSynced) throws IOException {
+
+        AtomicFiles.write(this.file, image.toByteArray(), isSynced);
+        this.stamp = stamp;
+        return image.size();
+    }
+
+    // this method is used to check if the checkpoint holds the units saved in the files with the stamp stamp
+    // only checkpoints read or written by this object are known, so a new one isn't written for nothing
+    public synchronized boolean isCurrent(String stamp) {
+
+        return stamp.equals(this.stamp);
+    }
+
+    // this method is used to remove the checkpoint, used when a collection is no longer checkpointed
+    public synchronized void delete() {
+
+        this.file.delete();
+        this.stamp = null;
+    }
+}
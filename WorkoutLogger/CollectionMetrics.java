@@ -0,0 +1,318 @@
+/* This class counts what a DataCollection does: how many times units are loaded, looked up, changed and written
+ * to file (flushed), how long it took (see LatencyHistogram) and how many bytes were read and written. It is always
+ * on, as counting only takes striped counters (LongAdder) and clock readings, without any lock.
+ *
+ * A lookup takes about as long as reading the clock twice, so only one lookup in 16, picked at random, is timed.
+ * All of them are counted. Other operations are all timed.
+ *
+ * A collection with a memory budget also counts reads of loaded units (hits), loads (misses) and evictions of its
+ * cache (see UnitCache). A checkpointed collection counts checkpoints that could not be written (see Checkpoint).
+ *
+ * The metrics can be read in code, through a snapshot (see MetricsSnapshot), or through JMX when the collection is
+ * opened with the option to publish them (see StorageOptions.setMetricsPublished and CollectionMetricsMBean).
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class CollectionMetrics implements CollectionMetricsMBean {
+
+    // this enum lists the kinds of operations that are timed
+    public enum Operation {
+
+        LOAD(0), // units read from file, a whole file when it is opened or one unit when it is loaded lazily
+        LOOKUP(15), // reads by label or fragment
+        MUTATION(0), // changes to units, saving included if they are saved right away
+        FLUSH(0); // changes written to file or journal
+
+        private final int sampleMask; // an operation is timed if a random number has none of these bits set
+
+        // ctor 1, an operation where one in sampleMask + 1 is timed
+        Operation(int sampleMask) {
+
+            this.sampleMask = sampleMask;
+        }
+    }
+
+    private static final long NOT_TIMED = Long.MIN_VALUE; // start of an operation that is only counted, not timed
+
+    private static final AtomicLong INSTANCES = new AtomicLong(); // tells apart collections opened on the same file
+
+    private final EnumMap<Operation, LongAdder> counts = new EnumMap<>(Operation.class); // times every kind is made
+    private final EnumMap<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class); // timed ones
+    private final LongAdder bytesRead = new LongAdder(); // number of bytes read from file
+    private final LongAdder bytesWritten = new LongAdder(); // number of bytes written to file
+    private final LongAdder cacheHits = new LongAdder(); // reads of units that were loaded, with a memory budget
+    private final LongAdder cacheMisses = new LongAdder(); // units loaded from file, with a memory budget
+    private final LongAdder cacheEvictions = new LongAdder(); // units unloaded to keep within the memory budget
+    private final LongAdder checkpointFailures = new LongAdder(); // checkpoints that could not be written
+    private ObjectName name; // what the metrics are published as, null if they are not
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, makes metrics where nothing has been counted
+    public CollectionMetrics() {
+
+        for (Operation operation : Operation.values()) {
+
+            this.counts.put(operation, new LongAdder());
+            this.histograms.put(operation, new LatencyHistogram());
+        }
+    }
+
+    /* INTERNAL */
+
+    // this method is used to get the duration a share of all durations of an operation are shorter than
+    private long percentileOf(Operation operation, double share) {
+
+        LatencyHistogram histogram = this.histograms.get(operation);
+        return Math.min(LatencyHistogram.percentileOf(histogram.getCounts(), share), histogram.getMax());
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used when an operation starts, returns what is given to record when it ends
+    // the clock is only read if the operation is timed
+    public long start(Operation operation) {
+
+        if (operation.sampleMask == 0 || (ThreadLocalRandom.current().nextInt() & operation.sampleMask) == 0) {
+
+            return System.nanoTime();
+        }
+
+        return NOT_TIMED;
+    }
+
+    // this method is used to record an operation that has ended, start is what start returned (or System.nanoTime)
+    public void record(Operation operation, long start) {
+
+        this.counts.get(operation).increment();
+
+        if (start != NOT_TIMED) {
+
+            this.histograms.get(operation).record(System.nanoTime() - start);
+        }
+    }
+
+    // this method is used to count bytes read from file
+    public void read(long bytes) {
+
+        this.bytesRead.add(bytes);
+    }
+
+    // this method is used to count bytes written to file
+    public void written(long bytes) {
+
+        this.bytesWritten.add(bytes);
+    }
+
+    // this method is used to count a read of a unit that was loaded already, in bounded memory mode (see UnitCache)
+    public void hit() {
+
+        this.cacheHits.increment();
+    }
+
+    // this method is used to count a unit that was loaded from file, in bounded memory mode
+    public void missed() {
+
+        this.cacheMisses.increment();
+    }
+
+    // this method is used to count units that were unloaded to keep within the memory budget
+    public void evicted(long units) {
+
+        this.cacheEvictions.add(units);
+    }
+
+    // this method is used to count a checkpoint that could not be written
+    public void checkpointFailed() {
+
+        this.checkpointFailures.increment();
+    }
+
+    // this method is used to get the metrics as they are now
+    public MetricsSnapshot snapshot() {
+
+        return new MetricsSnapshot(this.counts, this.histograms, this.bytesRead.sum(), this.bytesWritten.sum(),
+                this.cacheHits.sum(), this.cacheMisses.sum(), this.cacheEvictions.sum(), this.checkpointFailures.sum());
+    }
+
+    // this method is used to publish the metrics through JMX, named after the collection file f
+    // throws exception if they can not be published
+    public synchronized void register(File f) throws JMException {
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("DataCollection:type=Metrics,path=" + ObjectName.quote(f.getAbsolutePath()));
+
+        try {
+
+            server.registerMBean(this, name);
+        }
+        catch (InstanceAlreadyExistsException exception) { // another collection is open on the same file
+
+            name = new ObjectName(name + ",instance=" + INSTANCES.incrementAndGet());
+            server.registerMBean(this, name);
+        }
+
+        this.name = name;
+    }
+
+    // this method is used to stop publishing the metrics, it does nothing if they are not published
+    public synchronized void unregister() {
+
+        if (this.name != null) {
+
+            try {
+
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.name);
+            }
+            catch (JMException exception) { // already gone
+
+            }
+
+            this.name = null;
+        }
+    }
+
+    @Override
+    public long getLoadCount() {
+
+        return this.counts.get(Operation.LOAD).sum();
+    }
+
+    @Override
+    public long getLoadP50Nanos() {
+
+        return this.percentileOf(Operation.LOAD, 0.5);
+    }
+
+    @Override
+    public long getLoadP99Nanos() {
+
+        return this.percentileOf(Operation.LOAD, 0.99);
+    }
+
+    @Override
+    public long getLoadMaxNanos() {
+
+        return this.histograms.get(Operation.LOAD).getMax();
+    }
+
+    @Override
+    public long getLookupCount() {
+
+        return this.counts.get(Operation.LOOKUP).sum();
+    }
+
+    @Override
+    public long getLookupP50Nanos() {
+
+        return this.percentileOf(Operation.LOOKUP, 0.5);
+    }
+
+    @Override
+    public long getLookupP99Nanos() {
+
+        return this.percentileOf(Operation.LOOKUP, 0.99);
+    }
+
+    @Override
+    public long getLookupMaxNanos() {
+
+        return this.histograms.get(Operation.LOOKUP).getMax();
+    }
+
+    @Override
+    public long getMutationCount() {
+
+        return this.counts.get(Operation.MUTATION).sum();
+    }
+
+    @Override
+    public long getMutationP50Nanos() {
+
+        return this.percentileOf(Operation.MUTATION, 0.5);
+    }
+
+    @Override
+    public long getMutationP99Nanos() {
+
+        return this.percentileOf(Operation.MUTATION, 0.99);
+    }
+
+    @Override
+    public long getMutationMaxNanos() {
+
+        return this.histograms.get(Operation.MUTATION).getMax();
+    }
+
+    @Override
+    public long getFlushCount() {
+
+        return this.counts.get(Operation.FLUSH).sum();
+    }
+
+    @Override
+    public long getFlushP50Nanos() {
+
+        return this.percentileOf(Operation.FLUSH, 0.5);
+    }
+
+    @Override
+    public long getFlushP99Nanos() {
+
+        return this.percentileOf(Operation.FLUSH, 0.99);
+    }
+
+    @Override
+    public long getFlushMaxNanos() {
+
+        return this.histograms.get(Operation.FLUSH).getMax();
+    }
+
+    @Override
+    public long getBytesRead() {
+
+        return this.bytesRead.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+
+        return this.bytesWritten.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+
+        return this.cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+
+        return this.cacheMisses.sum();
+    }
+
+    @Override
+    public long getCacheEvictions() {
+
+        return this.cacheEvictions.sum();
+    }
+
+    @Override
+    public long getCheckpointFailures() {
+
+        return this.checkpointFailures.sum();
+    }
+}
@@ -0,0 +1,46 @@
+/* This interface is what the metrics of a DataCollection show through JMX (see CollectionMetrics), e.g. in
+ * jconsole. Durations are in nanoseconds and counted since the collection was opened.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+public interface CollectionMetricsMBean {
+
+    // number of times units have been read from file, a whole file or one lazily loaded unit
+    long getLoadCount();
+    long getLoadP50Nanos();
+    long getLoadP99Nanos();
+    long getLoadMaxNanos();
+
+    // number of reads by label or fragment (get, getView, contains, find, getBetween, floorLabel, ceilingLabel),
+    // durations are of the lookups that were timed, one in 16
+    long getLookupCount();
+    long getLookupP50Nanos();
+    long getLookupP99Nanos();
+    long getLookupMaxNanos();
+
+    // number of changes (add, remove, addTo, clearDataUnit, clear), the time includes saving them if they are saved
+    // right away
+    long getMutationCount();
+    long getMutationP50Nanos();
+    long getMutationP99Nanos();
+    long getMutationMaxNanos();
+
+    // number of times changes have been written to file or journal
+    long getFlushCount();
+    long getFlushP50Nanos();
+    long getFlushP99Nanos();
+    long getFlushMaxNanos();
+
+    // number of bytes read from and written to the files of the collection
+    long getBytesRead();
+    long getBytesWritten();
+
+    // number of reads of loaded units, loads from file and evictions of units, with a memory budget (see UnitCache)
+    long getCacheHits();
+    long getCacheMisses();
+    long getCacheEvictions();
+
+    // number of checkpoints that could not be written (see Checkpoint)
+    long getCheckpointFailures();
+}
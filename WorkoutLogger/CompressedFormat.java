@@ -0,0 +1,359 @@
+/* This class is used by DataCollection to read and write units in the compressed format. Workouts repeat the same
+ * exercise names, "_" separators and "kg", "sec" and "min" suffixes over and over, so they compress well.
+ *
+ * Units are written just like in the binary format (see BinaryFormat), as their label, the number of fragments they
+ * have and every fragment, but they are gathered into blocks of about 64 KB and every block is compressed on its
+ * own with Deflate. A single unit can then be read by inflating only the block it is stored in, instead of the whole
+ * file (see BlockFragmentSource).
+ *
+ * A compressed collection file starts with a header: the byte 0xDC, the bytes "CZ" and a version byte. It is followed by the
+ * blocks. A block starts with the number of bytes its units take when inflated and the number of units in it,
+ * followed by the compressed units. Deflate keeps a checksum of what it compresses, so a broken block is found
+ * when it is inflated. After the blocks comes an index that holds where every block starts and how many bytes it
+ * takes, and the file ends with a footer that holds where the index starts, the number of blocks and the bytes
+ * "DCZE". An empty file is an empty collection.
+ *
+ * Files used to start with the bytes "DCZ", which a text collection can start with as well. The first byte is now
+ * 0xDC, which is not text (see BinaryFormat), files with the old header are still read and are rewritten with the
+ * new one. A file only counts as compressed if its header has a known version, any other file is text.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class CompressedFormat {
+
+    private static final byte[] MAGIC = {(byte) 0xDC, 'C', 'Z'}; // first bytes of every compressed collection file
+    private static final byte[] OLD_MAGIC = {'D', 'C', 'Z'}; // first bytes of compressed files written before MAGIC
+    private static final byte[] FOOTER_MAGIC = {'D', 'C', 'Z', 'E'}; // last bytes of every compressed collection file
+    private static final byte VERSION = 1; // version of the format
+    public static final int HEADER_SIZE = MAGIC.length + 1; // magic bytes and version
+    public static final int BLOCK_HEADER_SIZE = 4 + 4; // inflated size and number of units
+    private static final int INDEX_ENTRY_SIZE = 8 + 4; // start and length of a block
+    private static final int FOOTER_SIZE = 8 + 4 + FOOTER_MAGIC.length; // start of index, number of blocks and magic
+    private static final int BLOCK_SIZE = 64 * 1024; // a block is compressed once its units take this many bytes
+
+    /* INTERNAL */
+
+    // this method is used to compress the units of a block and write the block to a stream
+    // returns the number of bytes the block takes in the stream
+    private static int writeBlock(DataOutputStream out, ByteArrayOutputStream units, int count, Deflater deflater,
+                                  byte[] buffer) throws IOException {
+
+        out.writeInt(units.size());
+        out.writeInt(count);
+
+        deflater.reset();
+        deflater.setInput(units.toByteArray());
+        deflater.finish();
+
+        int size = BLOCK_HEADER_SIZE;
+        while (!deflater.finished()) {
+
+            int compressed = deflater.deflate(buffer);
+            out.write(buffer, 0, compressed);
+            size += compressed;
+        }
+
+        return size;
+    }
+
+    // this method is used to add a block to the index, and to tell the units from first to end (not included) that
+    // they are stored in it, the block starts at start and takes length bytes
+    private static void place(DataOutputStream index, long[] positions, int first, int end, long start, long length)
+            throws IOException {
+
+        index.writeLong(start);
+        index.writeInt((int) length);
+
+        for (int i = first; i < end; i++) {
+
+            positions[i * 3] = start;
+            positions[i * 3 + 1] = length;
+        }
+    }
+
+    // this method is used to read the header of a file, magic bytes and version, returns null if the file is too short
+    // throws exception if something goes wrong while reading file
+    private static byte[] header(File f) throws IOException {
+
+        if (f.length() < HEADER_SIZE) {
+
+            return null;
+        }
+
+        byte[] header = new byte[HEADER_SIZE];
+        DataInputStream in = new DataInputStream(new FileInputStream(f));
+
+        try {
+
+            in.readFully(header);
+        }
+        finally {
+
+            in.close();
+        }
+
+        return header;
+    }
+
+    // this method is used to check if a header starts with specific magic bytes
+    private static boolean hasMagic(byte[] header, byte[] magic) {
+
+        return header[0] == magic[0] && header[1] == magic[1] && header[2] == magic[2];
+    }
+
+    // this method is used to check the footer of a file that is read into buffer, throws exception if it is broken
+    // returns where the index of blocks starts
+    private static int checkFooter(ByteBuffer buffer, File f) throws IOException {
+
+        int end = buffer.limit() - FOOTER_SIZE;
+        boolean isWhole = end >= HEADER_SIZE;
+
+        for (int i = 0; isWhole && i < FOOTER_MAGIC.length; i++) {
+
+            isWhole = buffer.get(end + 12 + i) == FOOTER_MAGIC[i];
+        }
+
+        long index = isWhole ? buffer.getLong(end) : -1;
+        int blocks = isWhole ? buffer.getInt(end + 8) : -1;
+
+        if (index < HEADER_SIZE || blocks < 0 || index + (long) blocks * INDEX_ENTRY_SIZE != end) {
+
+            throw new IOException("Collection Was Not Completely Written: " + f);
+        }
+
+        return (int) index;
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to check if a file is a compressed collection file, its header must have magic bytes (new
+    // or old) and a known version, any other file is a text file, also one that starts with "DCZ"
+    // throws exception if something goes wrong while reading file
+    public static boolean isCompressed(File f) throws IOException {
+
+        byte[] header = header(f);
+
+        return header != null && (hasMagic(header, MAGIC) || hasMagic(header, OLD_MAGIC))
+                && header[3] >= 1 && header[3] <= VERSION;
+    }
+
+    // this method is used to check if a compressed file has the old magic bytes, it is then rewritten with the new ones
+    // throws exception if something goes wrong while reading file
+    public static boolean isOutdated(File f) throws IOException {
+
+        return isCompressed(f) && hasMagic(header(f), OLD_MAGIC);
+    }
+
+    // this method is used to inflate a block, the buffer must hold only the block, header included
+    // returns the units of the block, as they are written in the binary format but without checksums
+    // throws exception if the block is broken
+    public static ByteBuffer inflate(ByteBuffer block, Inflater inflater, File f) throws IOException {
+
+        int size = block.limit() < BLOCK_HEADER_SIZE ? -1 : block.getInt(0);
+
+        if (size < 0) {
+
+            throw new IOException("Broken Block In Collection: " + f);
+        }
+
+        byte[] bytes = new byte[size + 1]; // one byte more, so that a block that inflates to more than size is found
+        int inflated = 0;
+
+        inflater.reset();
+        inflater.setInput(block.slice(BLOCK_HEADER_SIZE, block.limit() - BLOCK_HEADER_SIZE));
+
+        try {
+
+            while (!inflater.finished()) {
+
+                int read = inflater.inflate(bytes, inflated, bytes.length - inflated);
+
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary() || inflated == bytes.length)) {
+
+                    throw new IOException("Broken Block In Collection: " + f);
+                }
+
+                inflated += read;
+            }
+        }
+        catch (DataFormatException exception) { // content does not match its checksum
+
+            throw new IOException("Broken Block In Collection: " + f, exception);
+        }
+
+        if (inflated != size) {
+
+            throw new IOException("Broken Block In Collection: " + f);
+        }
+
+        return ByteBuffer.wrap(bytes, 0, size);
+    }
+
+    // this method is used to read all units in a compressed file and add them to a list of units
+    // if positions is not null, the start and length (in bytes) of the block of every unit is added to it
+    // throws exception if something goes wrong while reading, or if the file is broken
+    public static void load(File f, ArrayList<DataUnit> u, ArrayList<long[]> positions) throws IOException {
+
+        ByteBuffer buffer = AtomicFiles.read(f);
+
+        if (buffer.limit() == 0) { // empty collection
+
+            return;
+        }
+
+        if (buffer.limit() < HEADER_SIZE || buffer.get(3) > VERSION) {
+
+            throw new IOException("Unknown Compressed Format In Collection: " + f);
+        }
+
+        int index = checkFooter(buffer, f);
+        int blocks = buffer.getInt(buffer.limit() - FOOTER_SIZE + 8);
+        Inflater inflater = new Inflater();
+
+        try {
+
+            for (int i = 0; i < blocks; i++) {
+
+                long start = buffer.getLong(index + i * INDEX_ENTRY_SIZE);
+                int length = buffer.getInt(index + i * INDEX_ENTRY_SIZE + 8);
+
+                if (start < HEADER_SIZE || length < BLOCK_HEADER_SIZE || start + length > index) {
+
+                    throw new IOException("Broken Block Index In Collection: " + f);
+                }
+
+                ByteBuffer block = buffer.slice((int) start, length);
+                ByteBuffer units = inflate(block, inflater, f);
+                int count = block.getInt(4);
+
+                for (int j = 0; j < count; j++) {
+
+                    String label = BinaryFormat.readString(units);
+                    u.add(DataUnit.restore(label, BinaryFormat.readFragments(units)));
+
+                    if (positions != null) {
+
+                        positions.add(new long[] {start, length});
+                    }
+                }
+
+                if (units.hasRemaining()) { // block holds more than its units
+
+                    throw new IOException("Broken Block In Collection: " + f);
+                }
+            }
+        }
+        finally {
+
+            inflater.end();
+        }
+    }
+
+    // this method is used to write all units in the compressed format to a stream, the stream is flushed but not closed
+    // a block of units that are not loaded, and that are all the units of the block they are stored in, is copied
+    // as it is, without inflating it
+    // returns the start and length of the block of every unit, and the version of the unit (see DataCollection.writeUnits)
+    // throws exception if something goes wrong while writing to stream
+    public static long[] write(OutputStream stream, ArrayList<DataUnit> units) throws IOException {
+
+        BufferedOutputStream out = new BufferedOutputStream(stream, 64 * 1024);
+        DataOutputStream data = new DataOutputStream(out);
+        ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_SIZE * 2); // units of the block being filled
+        ByteArrayOutputStream index = new ByteArrayOutputStream(); // start and length of every block
+        DataOutputStream indexData = new DataOutputStream(index);
+        Deflater deflater = new Deflater();
+        byte[] buffer = new byte[16 * 1024]; // compressed bytes on their way to the stream
+
+        long[] positions = new long[units.size() * 3];
+        long position = 0;
+        int first = 0; // the first unit of the block being filled
+        int blocks = 0;
+
+        if (!units.isEmpty()) { // an empty collection is an empty file, just like in the other formats
+
+            out.write(MAGIC);
+            out.write(VERSION);
+            position = HEADER_SIZE;
+        }
+
+        try {
+
+            for (int i = 0; i < units.size(); i++) {
+
+                DataUnit unit = units.get(i);
+                FragmentSource source = unit.getSource();
+                int stored = 0; // number of units in a stored block that can be copied, starting with this unit
+
+                positions[i * 3 + 2] = unit.getVersion(); // taken first, so a later change makes the position outdated
+
+                if (!unit.isLoaded() && source instanceof BlockFragmentSource) {
+
+                    stored = ((BlockFragmentSource) source).wholeBlockAt(units, i, positions);
+                }
+
+                if (stored > 0 && block.size() > 0) { // units before it are compressed in a block of their own
+
+                    int length = writeBlock(data, block, i - first, deflater, buffer);
+                    place(indexData, positions, first, i, position, length);
+                    position += length;
+                    blocks++;
+                    block.reset();
+                }
+
+                if (stored > 0) { // copied as it is
+
+                    long length = source.copyTo(out);
+                    place(indexData, positions, i, i + stored, position, length);
+                    position += length;
+                    blocks++;
+                    i += stored - 1;
+                    first = i + 1;
+                    continue;
+                }
+
+                // a unit that is not loaded is read from where it is stored, without keeping it in memory
+                ArrayList<String> fragments = !unit.isLoaded() && source != null ? source.load() : unit.getFragments();
+                BinaryFormat.writeString(block, unit.getLabel());
+                BinaryFormat.writeVarint(block, fragments.size());
+
+                for (String fragment : fragments) {
+
+                    BinaryFormat.writeString(block, fragment);
+                }
+
+                if (block.size() >= BLOCK_SIZE || i == units.size() - 1) { // block is full, or there are no more units
+
+                    int length = writeBlock(data, block, i + 1 - first, deflater, buffer);
+                    place(indexData, positions, first, i + 1, position, length);
+                    position += length;
+                    blocks++;
+                    block.reset();
+                    first = i + 1;
+                }
+            }
+        }
+        finally {
+
+            deflater.end();
+        }
+
+        if (!units.isEmpty()) {
+
+            index.writeTo(out);
+            data.writeLong(position);
+            data.writeInt(blocks);
+            data.write(FOOTER_MAGIC);
+        }
+
+        out.flush();
+        return positions;
+    }
+}
@@ -5,216 +5,1652 @@
  *
  * This is a proof of concept for makeshift databases using files
  *
- * Author @qpeano [created 2022-01-29 | last updated: 2023-05-20]
+ * A collection can be opened with StorageOptions. A journaled collection does not rewrite its file on every change,
+ * it appends a record of the change to a journal (see Journal) that is replayed when the collection is opened.
+ *
+ * Units are stored as text, in a compact binary format or in compressed blocks (see StorageFormat). A file in
+ * another format is converted the first time it is opened with the new one.
+ *
+ * Equal fragments are only kept once in memory, every fragment a unit gets is replaced with the equal one of a
+ * dictionary of the collection (see FragmentDictionary).
+ *
+ * Changes can be grouped in a batch (see beginBatch and batch), they are then saved all at once when the batch
+ * is committed instead of one by one. Units can also be removed or changed in bulk (see removeIf, retainLabels and
+ * replaceFragments), all units are then gone through once and the change is saved with one single write.
+ *
+ * In write behind mode changes are only made in memory by the caller. A background thread (see WriteBehindFlusher)
+ * saves them a short while later, together with all other changes made in the meantime. Call flush to wait until
+ * everything is saved, and close when the collection is no longer used.
+ *
+ * A collection can be shared by several threads. Reads never block each other, they lock the collection for
+ * reading. Changes that add or remove units lock the whole collection. Other changes to units (see addTo and
+ * clearDataUnit) only wait for changes to units with the same label, as labels are spread over a fixed number of
+ * locks (stripes). When such a change is written right away, the whole collection is only locked while the file is
+ * written, and changes that other threads have made by then are written with it. Every such write is numbered (a
+ * generation), and a thread whose change was written by another thread learns if that write failed.
+ *
+ * In segmented mode units are spread over several segment files by their label (see Segments), and a change only
+ * rewrites the segment of the units it changed. Units are then kept in order within a segment, and segments are
+ * loaded in order of their keys.
+ *
+ * Lookups by label never touch the file, they go through an index that maps every label to its units. Labels are
+ * also kept sorted, so that all labels in a range, or the closest label before or after another, can be found
+ * without going through all units (see getBetween, floorLabel and ceilingLabel).
+ *
+ * Units can also be found by the content of their fragments (see find). A collection opened with a fragment index
+ * (see FragmentIndex) looks them up in the index, which is kept up to date as units change, other collections
+ * search all units.
+ *
+ * A snapshot (see Snapshot) is a read-only view of the collection as it is when the snapshot is made. It is made
+ * without copying, the list of units and the label indexes are copied when a unit is next added or removed, and a
+ * unit that is changed keeps its old fragments for as long as an open snapshot needs them.
+ *
+ * Large collections can be read without copying them, through views of fragments (see getView) and by going
+ * through read-only units one at a time (see forEachUnit and stream).
+ *
+ * With lazy loading only the labels are read when a collection is opened, using an offset index stored next to
+ * the file (see UnitIndex). The fragments of a unit are read the first time they are needed. Files are always
+ * written to a temporary file first and then moved in place, so that units that have not been loaded yet can be
+ * copied from the old file.
+ *
+ * A lazily loaded collection can be given a memory budget, its loaded units are then kept within the budget by a
+ * cache (see UnitCache) that unloads the units that were read the longest time ago. A unit that has changed is only
+ * unloaded after the change has been written to file. Fragments read from file are then not interned in the
+ * dictionary, since the dictionary would keep them after their units are unloaded.
+ *
+ * Fragments read from file can also be stored off the heap (see FragmentArena), a unit then only keeps where its
+ * fragments are stored, and they are decoded when they are read. Units that change keep their fragments on the heap.
+ * Once most of the arena holds fragments that units no longer use, all units are packed into a new one, and the
+ * arena is freed when the collection is closed.
+ *
+ * Instead of off the heap, fragments can be packed with a packer of the options (see FragmentPacker), e.g. into the
+ * columns of a workout (see WorkoutColumns). Units are packed when they are loaded or read, a unit that changes
+ * keeps its fragments on the heap until it is read again.
+ *
+ * Files are replaced in a crash safe way (see AtomicFiles): they are written to a temporary file that is moved in
+ * place, so after a crash a file is either the old or the new one. A synced collection also forces the temporary
+ * file to the disk before it is moved, so that this holds after a power loss as well. Journal records and binary
+ * units carry checksums, when a collection is opened only the end of the journal and the footer of a binary file are
+ * checked.
+ *
+ * A collection counts its loads, lookups, changes and flushes, how long they take and how many bytes it reads and
+ * writes (see CollectionMetrics and getMetrics). The metrics can also be published through JMX.
+ *
+ * A checkpointed collection saves all its units to a checkpoint (see Checkpoint) when it is closed, and every now
+ * and then in write behind mode. If the file and journal have not changed since, the next start reads the units
+ * from the checkpoint instead of the file, which is quicker than reading text. A checkpoint that can't be written is
+ * counted in the metrics. A lazy collection can't be checkpointed, a checkpoint holds every fragment, which is what
+ * lazy loading avoids reading.
+ *
+ * Author @qpeano [created 2022-01-29 | last updated: 2026-10-18]
  */
 
 import java.io.*;
 import java.util.ArrayList;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import javax.management.JMException;
 
 public class DataCollection {
 
     private File file; // where all data units are stored
     private ArrayList<DataUnit> units; // all the individual units
+    private LinkedHashMap<String, ArrayList<DataUnit>> index; // label -> all units with that label, in order of insertion
+    private TreeMap<String, ArrayList<DataUnit>> sortedIndex; // same as index, sorted by label
     private boolean isEmpty; // indicator for a few methods
+    private Journal journal; // where changes are appended, null if collection is not journaled
+    private StorageFormat format; // the format the units are stored in
+    private int batchDepth; // number of batches that have been started but not committed
+    private ArrayList<String> pending; // records of changes made in a batch or in write behind mode, not saved yet
+    private boolean isPendingAll; // if a pending change needs the whole file to be rewritten
+    private long takenGeneration; // number of times pending changes have been taken to be written (see persistPending)
+    private volatile long savedGeneration; // the last time pending changes were taken and written without failing
+    private Exception commitFailure; // what went wrong the last time pending changes could not be written
+    private boolean isSynced; // if every write waits until content is on the disk (fsync)
+    private WriteBehindFlusher flusher; // saves changes in the background, null if collection is not in write behind mode
+    private Segments segments; // the segments units are stored in, null if collection is not segmented
+    private HashSet<String> dirtySegments; // keys of segments with changes that have not been saved
+    private boolean isLazy; // if fragments of units are read from file when they are first needed
+    private boolean isUnitsShared; // if the list of units and the label indexes are used by a snapshot
+    private long epoch; // number of the newest snapshot, 0 if none has been made
+    private final ConcurrentSkipListSet<Long> openSnapshots = new ConcurrentSkipListSet<>(); // epochs of open snapshots
+    private FragmentIndex fragmentIndex; // token of fragment -> labels of units that hold it, null if not used
+    private final FragmentDictionary dictionary = new FragmentDictionary(); // fragments of all units, each stored once
+    private final CollectionMetrics metrics = new CollectionMetrics(); // counts loads, lookups, changes and flushes
+    private volatile FragmentArena arena; // where fragments read from file are stored off the heap, null if not
+    private FragmentPacker packer; // what fragments of units are packed with (the arena if off heap), null if nothing
+    private UnitCache cache; // keeps loaded units within the memory budget, null if memory is not bounded
+    private Checkpoint checkpoint; // where units are saved so that the next start doesn't read the file, null if not used
+    private long checkpointInterval; // shortest time in milliseconds between two checkpoints written by the flusher
+    private volatile long checkpointedAt; // when the last checkpoint was read or written
+    private volatile boolean isFlushing; // if the flusher is writing changes it has taken, the file is behind the units then
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); // read: reads and changes to units, write: the rest
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPE_COUNT]; // changes to units with the same label wait for each other
+    private final Object pendingLock = new Object(); // guards pending changes that are made while collection is locked for reading
+
+    private static final long MIN_COMPACTION_SIZE = 64 * 1024; // journal is never compacted before it is this big
+    private static final int STRIPE_COUNT = 64; // number of locks that labels are spread over
 
     /* CONSTRUCTORS */
 
-    // ctor 1, connects to a file with specified name, content is extracted if file is NOT empty
-    // throws IOException if something goes wrong with file creation/ connection
-    public DataCollection(String path) throws IOException {
+    // ctor 1, connects to a file with specified name, content is extracted if file is NOT empty
+    // throws IOException if something goes wrong with file creation/ connection
+    public DataCollection(String path) throws IOException {
+
+        this(path, new StorageOptions());
+    }
+
+    // ctor 2, connects to a file with specified name, list of units is given some starting values from user
+    // content from file is extracted if file is NOT empty
+    // throws IOException if something goes wrong with file creation/ connection
+    public DataCollection(String path, ArrayList<DataUnit> startingUnits) throws IOException {
+
+        this.file = new File(path); // makes connection to file
+        this.file.createNewFile(); // creates file if it does not exist
+        this.units = startingUnits;
+        this.format = StorageFormat.TEXT;
+        this.pending = new ArrayList<>();
+        this.makeStripes();
+        this.isEmpty = !(this.hasContent(this.file)); // to check if file has content, negated to suit use of field
+
+        if (!this.isEmpty()) { // if file is not empty all data is extracted and written to list of units
+
+            this.extract(this.file, this.units);
+        }
+
+        this.reindex();
+    }
+
+    // ctor 3, connects to a file with specified name and opens it with the specified options
+    // content from file (and journal, if collection is journaled) is extracted if there is any
+    // throws IOException if something goes wrong with file creation/ connection
+    public DataCollection(String path, StorageOptions options) throws IOException {
+
+        this.file = new File(path); // makes connection to file
+        this.file.createNewFile(); // creates file if it does not exist
+        this.units = new ArrayList<>();
+        this.format = options.getFormat();
+        this.isSynced = options.isSynced();
+        this.isLazy = options.isLazyLoading();
+        this.pending = new ArrayList<>();
+        this.dirtySegments = new HashSet<>();
+        this.makeStripes();
+        this.isEmpty = !(this.hasContent(this.file)); // to check if file has content, negated to suit use of field
+
+        if (options.isSegmented() && options.isJournaled()) {
+
+            throw new IllegalArgumentException("A Segmented Collection Can Not Be Journaled: " + path);
+        }
+
+        if (options.isCheckpointed() && (options.isSegmented() || options.isLazyLoading())) {
+
+            throw new IllegalArgumentException("A Segmented Or Lazy Collection Can Not Be Checkpointed: " + path);
+        }
+
+        if (options.getMemoryBudget() > 0 && !options.isLazyLoading()) {
+
+            throw new IllegalArgumentException("A Collection With A Memory Budget Must Be Lazily Loaded: " + path);
+        }
+
+        this.cache = options.getMemoryBudget() > 0 ? new UnitCache(options.getMemoryBudget(), this.metrics) : null;
+
+        if (options.isOffHeap() && options.isLazyLoading()) {
+
+            throw new IllegalArgumentException("A Lazy Collection Can Not Be Stored Off The Heap: " + path);
+        }
+
+        if (options.isOffHeap() && options.getPacker() != null) {
+
+            throw new IllegalArgumentException("A Collection Stored Off The Heap Can Not Have A Packer: " + path);
+        }
+
+        this.arena = options.isOffHeap() ? new FragmentArena() : null;
+        this.packer = this.arena != null ? this.arena : options.getPacker();
+        this.checkpoint = options.isCheckpointed() ? new Checkpoint(this.file) : null;
+        this.checkpointInterval = options.getCheckpointInterval();
+
+        // changes made since the file was last written are replayed, also if the collection is no longer journaled
+        // the journal is read first, since a checkpoint is only up to date if the journal has not changed since
+        this.journal = new Journal(path + ".journal", this.file);
+        ArrayList<String[]> records = this.journal.read();
+        this.metrics.read(this.journal.length());
+
+        // file is rewritten if it is not stored the way options say, in the other format or (not) in segments
+        boolean isConverted = false;
+        boolean isRestored = false; // if units are read from the checkpoint, the journal is already replayed then
+        Segments stored = Segments.isManifest(this.file) ? Segments.read(this.file) : null; // null if not segmented
+
+        if (stored != null) { // all segments are extracted, in order of their keys
+
+            for (String key : stored.keys()) {
+
+                File segment = stored.fileOf(key);
+                if (this.hasContent(segment)) {
+
+                    isConverted = isConverted || this.isOtherFormat(segment);
+                    this.extract(segment, this.units);
+                }
+            }
+        }
+        else if (!this.isEmpty()) { // if file is not empty all data is extracted and written to list of units
+
+            isConverted = this.isOtherFormat(this.file);
+            isRestored = this.checkpoint != null && this.restore(); // units and replayed journal, if up to date
+
+            if (!isRestored) {
+
+                this.extract(this.file, this.units);
+            }
+        }
+
+        if (options.isSegmented()) {
+
+            this.segments = new Segments(this.file, options.getSegmentPrefixLength(), options.getSegmentCount());
+
+            if (stored == null) {
+
+                isConverted = isConverted || !this.isEmpty;
+            }
+            else { // old segments are known, so that they are removed if units are partitioned another way now
+
+                this.segments.keys().addAll(stored.keys());
+                isConverted = isConverted || !stored.partition().equals(this.segments.partition());
+            }
+        }
+        else {
+
+            isConverted = isConverted || stored != null;
+        }
+
+        this.reindex();
+
+        for (int i = 0; i < records.size() && !isRestored; i++) {
+
+            this.apply(records.get(i));
+        }
+
+        this.isEmpty = this.units.isEmpty();
+
+        if (this.packer != null) { // packed after the journal is replayed, so units it changed are packed too
+
+            for (DataUnit unit : this.units) {
+
+                unit.pack();
+            }
+        }
+
+        if (options.isFragmentIndexed()) { // built after the journal is replayed, so it holds the current fragments
+
+            this.fragmentIndex = new FragmentIndex();
+            for (DataUnit unit : this.units) {
+
+                this.indexFragments(unit);
+                this.trim();
+            }
+        }
+
+        if (isConverted || (!options.isJournaled() && !records.isEmpty())) { // file is rewritten the chosen way
+
+            this.write(null, true); // journal has been replayed so it is started over
+        }
+
+        if (stored != null && this.segments == null) { // units have been moved from segments to file
+
+            for (String key : stored.keys()) {
+
+                stored.fileOf(key).delete();
+                UnitIndex.delete(stored.fileOf(key));
+            }
+        }
+
+        if (!options.isJournaled()) { // changes from an old journal are in the file now, journal is not needed
+
+            this.journal.delete();
+            this.journal = null;
+        }
+
+        if (this.checkpoint == null) { // a checkpoint from an earlier start would only become outdated
+
+            new Checkpoint(this.file).delete();
+        }
+        else {
+
+            this.checkpointedAt = System.currentTimeMillis();
+        }
+
+        this.trim(); // units loaded while the file was read or converted
+
+        if (options.isWriteBehind()) { // started last, nothing is pending before this
+
+            this.flusher = new WriteBehindFlusher(this, options.getMaxFlushDelay());
+        }
+
+        if (options.isMetricsPublished()) {
+
+            try {
+
+                this.metrics.register(this.file);
+            }
+            catch (JMException exception) {
+
+                throw new IllegalStateException("Metrics Can Not Be Published For Collection: " + path, exception);
+            }
+        }
+    }
+
+    /* INTERNAL */
+
+    // this method is used to make the locks that labels are spread over
+    private void makeStripes() {
+
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // this method is used to lock collection for a change to the units with a specific label
+    // only the units with the same label are locked, as well as the collection for reading, so that no unit is added
+    // or removed meanwhile. A change that is written right away is written after it is unlocked (see commitPending)
+    // returns the lock that is held, it is given back to unlock when the change is done
+    private Lock lockFor(String label) {
+
+        this.lock.readLock().lock();
+
+        Lock stripe = this.stripes[Math.floorMod(label.hashCode(), STRIPE_COUNT)];
+        stripe.lock();
+        return stripe;
+    }
+
+    // this method is used to unlock collection after a change, held is the lock returned by lockFor
+    private void unlock(Lock held) {
+
+        held.unlock();
+        this.lock.readLock().unlock();
+    }
+
+    // this method is used to write changes that were made under a stripe right away, once the stripe is unlocked
+    // the whole collection is only locked while the file is written, changes that other threads have made by then
+    // are written with the same write, and a thread that finds its change already written does not lock at all
+    // ticket is the generation that saves the change (see persist), 0 if it is saved already or saved later
+    // throws exception if something goes wrong with writing to file, also if another thread wrote the change
+    private void commitPending(long ticket) throws IOException {
+
+        if (ticket == 0 || this.savedGeneration >= ticket) { // saved later (batch or write behind), or already saved
+
+            return;
+        }
+
+        this.lock.writeLock().lock();
+
+        try {
+
+            if (this.takenGeneration < ticket) { // not taken by another thread yet
+
+                if (this.batchDepth > 0 || this.flusher != null) { // a batch started meanwhile saves it when committed
+
+                    return;
+                }
+
+                this.persistPending(); // throws exception if this write fails
+            }
+
+            // a failed write leaves everything to be rewritten, so a later write that succeeded saved the change too
+            if (this.savedGeneration < ticket) {
+
+                throw new IOException("Change Was Not Saved In Collection: " + this.getPath(), this.commitFailure);
+            }
+        }
+        finally {
+
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    // this method is used by the add methods (see USER INTERFACE) to add a new unit to collection
+    // throws exception if something goes wrong with writing to file
+    private void add(DataUnit unit) throws IOException {
+
+        long start = this.metrics.start(CollectionMetrics.Operation.MUTATION);
+        this.lock.writeLock().lock();
+
+        try {
+
+            this.ownUnits();
+            unit.intern(this.dictionary); // equal fragments of all units are the same String
+            this.units.add(unit); // adds new unit
+            this.index(unit);
+            this.indexFragments(unit);
+            this.persist(this.records(unit)); // saves unit
+            this.isEmpty = false; // changes status to NOT EMPTY, if file was empty before
+        }
+        finally {
+
+            this.lock.writeLock().unlock();
+            this.metrics.record(CollectionMetrics.Operation.MUTATION, start);
+        }
+    }
+
+    // this method is used to get a copy of the list of units, the units themselves are not copied
+    private ArrayList<DataUnit> copyUnits() {
+
+        this.lock.readLock().lock();
+
+        try {
+
+            return new ArrayList<>(this.units);
+        }
+        finally {
+
+            this.lock.readLock().unlock();
+        }
+    }
+
+    // this method is used to make a read-only copy of a unit that was in collection when a stream was made
+    // returns null if the unit has been removed since, its stored copy may already have been overwritten then
+    private DataUnit readOnly(DataUnit unit) {
+
+        this.lock.readLock().lock(); // a lazy unit is loaded, which must not happen while its file is replaced
+
+        try {
+
+            ArrayList<DataUnit> found = this.index.get(unit.getLabel());
+            return found != null && found.contains(unit) ? unit.readOnly() : null;
+        }
+        finally {
+
+            this.lock.readLock().unlock();
+            this.trim();
+        }
+    }
+
+    // this method is used to copy the list of units and the label indexes if a snapshot uses them, before they change
+    private void ownUnits() {
+
+        if (!this.isUnitsShared || this.openSnapshots.isEmpty()) { // closed snapshots are not read any more
+
+            this.isUnitsShared = false;
+            return;
+        }
+
+        this.units = new ArrayList<>(this.units);
+        this.reindex();
+        this.isUnitsShared = false;
+    }
+
+    // this method is used to load lazy units that are about to be removed, if an open snapshot may still read them
+    // the stored copy of a removed unit is overwritten the next time its file is written
+    private void loadForSnapshots(ArrayList<DataUnit> removed) {
+
+        if (this.isLazy && !this.openSnapshots.isEmpty()) {
+
+            for (DataUnit unit : removed) {
+
+                unit.size(); // loads a lazy unit
+            }
+        }
+    }
+
+    // this method is used to keep the fragments of a unit for open snapshots, before the unit is changed
+    private void preserve(DataUnit unit) {
+
+        Long oldest = this.openSnapshots.ceiling(Long.MIN_VALUE); // null if none is open, also if the last one just closed
+        unit.preserve(oldest == null ? 0 : this.epoch, oldest == null ? Long.MAX_VALUE : oldest);
+    }
+
+    // this method is used by a snapshot to read the content a unit had when the snapshot was made
+    // a unit that is in memory is read without locking collection, its kept fragments never change (see DataUnit),
+    // so a snapshot is never blocked by a change that writes the file. Only a lazy unit that has to be loaded from
+    // file locks collection for reading, as it must not be loaded while its file is replaced
+    List<String> viewAt(DataUnit unit, long epoch) {
+
+        List<String> view = unit.getLoadedViewAt(epoch);
+
+        if (view != null) {
+
+            return view;
+        }
+
+        this.lock.readLock().lock();
+
+        try {
+
+            return unit.getFragmentViewAt(epoch);
+        }
+        finally {
+
+            this.lock.readLock().unlock();
+            this.trim();
+        }
+    }
+
+    // this method is used by a snapshot to make a read-only copy of a unit, as it was when the snapshot was made
+    DataUnit readOnlyAt(DataUnit unit, long epoch) {
+
+        return DataUnit.readOnly(unit.getLabel(), this.viewAt(unit, epoch));
+    }
+
+    // this method is used by a snapshot when it is closed, fragments kept for it are dropped when units change next
+    void release(long epoch) {
+
+        this.openSnapshots.remove(epoch);
+    }
+
+    // this method is used to build the label index from scratch, using the list of units
+    private void reindex() {
+
+        this.index = new LinkedHashMap<>();
+        this.sortedIndex = new TreeMap<>();
+        for (DataUnit unit : this.units) {
+
+            this.index(unit);
+        }
+    }
+
+    // this method is used to add a unit to the label index, it goes after all units with the same label
+    private void index(DataUnit unit) {
+
+        ArrayList<DataUnit> found = this.index.get(unit.getLabel());
+
+        if (found == null) { // first unit with label, both indexes share the list of units
+
+            found = new ArrayList<>(1);
+            this.index.put(unit.getLabel(), found);
+            this.sortedIndex.put(unit.getLabel(), found);
+        }
+
+        found.add(unit);
+
+        if (this.cache != null) { // every unit of collection is in its cache
+
+            unit.cacheIn(this.cache);
+        }
+
+        if (this.packer != null) {
+
+            unit.packWith(this.packer);
+        }
+    }
+
+    // this method is used to take removed units out of the cache, if collection has one, and to tell the arena that
+    // their fragments are no longer used, if they are stored off the heap
+    // they are not unloaded, since their stored copy is overwritten the next time their file is written
+    private void uncache(ArrayList<DataUnit> removed) {
+
+        if ((this.cache != null || this.arena != null) && removed != null) {
+
+            for (DataUnit unit : removed) {
+
+                unit.cacheIn(null);
+                unit.release();
+            }
+        }
+    }
+
+    // this method is used to unload the least recently read units, if loaded units take more than the memory budget,
+    // and to pack units into a new arena, if most bytes of the one they are in are no longer used
+    // it must not be called while a unit is locked, since units are locked to be unloaded (see UnitCache)
+    private void trim() {
+
+        if (this.cache != null) {
+
+            this.cache.evict();
+        }
+
+        if (this.arena != null && this.arena.isWasteful()) {
+
+            this.repack();
+        }
+    }
+
+    // this method is used to pack all units into a new arena, the old one is freed once no view or snapshot reads it
+    // nothing is done if the collection is in use, it is tried again after the next change
+    private void repack() {
+
+        if (!this.lock.writeLock().tryLock()) { // also fails if this thread only holds the read lock
+
+            return;
+        }
+
+        try {
+
+            if (this.arena.isWasteful()) { // could have been repacked by another thread
+
+                FragmentArena arena = new FragmentArena();
+                for (DataUnit unit : this.units) {
+
+                    unit.packWith(arena);
+                    unit.pack();
+                }
+
+                this.arena = arena;
+                this.packer = arena;
+            }
+        }
+        finally {
+
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    // this method is used to get the dictionary fragments read from file are interned in, null with a memory budget
+    // or if fragments are packed, the dictionary keeps every fragment it is given, so units could not let go of theirs
+    private FragmentDictionary interning() {
+
+        return this.cache == null && this.packer == null ? this.dictionary : null;
+    }
+
+    // this method is used to get the equal fragment of the dictionary, or the fragment itself if there is none (see
+    // interning), equal fragments added to units are then the same String
+    private String intern(String fragment) {
+
+        FragmentDictionary dictionary = this.interning();
+        return dictionary != null ? dictionary.intern(fragment) : fragment;
+    }
+
+    // this method is used to remove a label from the label index, returns the units it had or null if there were none
+    private ArrayList<DataUnit> unindex(String label) {
+
+        this.sortedIndex.remove(label);
+        return this.index.remove(label);
+    }
+
+    // this method is used to add all fragments of a unit to the fragment index, if collection has one
+    private void indexFragments(DataUnit unit) {
+
+        if (this.fragmentIndex != null) {
+
+            for (String fragment : unit.getFragmentView()) {
+
+                this.fragmentIndex.add(unit.getLabel(), fragment);
+            }
+        }
+    }
+
+    // this method is used to remove all fragments of units with a specific label from the fragment index
+    // it must be called before the units are removed or cleared
+    private void unindexFragments(String label) {
+
+        if (this.fragmentIndex != null) {
+
+            for (DataUnit unit : this.index.getOrDefault(label, new ArrayList<>())) {
+
+                this.fragmentIndex.remove(label, unit.getFragmentView());
+            }
+        }
+    }
+
+    // this method is used to remove every unit that passes a test, in one pass over the units, and to save it once
+    // labels that lose all their units are saved as records, if only some units of a label are removed the whole file
+    // is rewritten, since a record removes every unit with its label. Collection must be locked for writing
+    // returns the number of removed units, throws exception if something goes wrong with writing to file
+    private int removeUnits(Predicate<DataUnit> test) throws IOException {
+
+        ArrayList<DataUnit> kept = new ArrayList<>(this.units.size());
+        ArrayList<DataUnit> removed = new ArrayList<>();
+
+        // every unit is tested before any is removed, so a failing test changes nothing
+        for (DataUnit unit : this.units) {
+
+            (test.test(unit) ? removed : kept).add(unit);
+            this.trim();
+        }
+
+        if (removed.isEmpty()) {
+
+            return 0;
+        }
+
+        this.loadForSnapshots(removed);
+        LinkedHashSet<String> labels = new LinkedHashSet<>(); // labels of removed units, in order of collection
+
+        for (DataUnit unit : removed) {
+
+            labels.add(unit.getLabel());
+            if (this.fragmentIndex != null) {
+
+                this.fragmentIndex.remove(unit.getLabel(), unit.getFragmentView());
+            }
+        }
+
+        this.uncache(removed);
+        this.units = kept; // a new list, so an open snapshot keeps the old one and the old label indexes
+        this.isUnitsShared = false;
+        this.reindex();
+        this.isEmpty = kept.isEmpty();
+
+        ArrayList<String> records = new ArrayList<>();
+        for (String label : labels) {
+
+            if (this.index.containsKey(label)) { // some units with label are left, which no record can describe
+
+                this.persistAll();
+                return removed.size();
+            }
+
+            records.add(Journal.record(Journal.REMOVE, label));
+        }
+
+        this.persist(records);
+        return removed.size();
+    }
+
+    // this method is used to get all units with a specific label, throws exception if there are none
+    private ArrayList<DataUnit> lookup(String label) throws Exception {
+
+        ArrayList<DataUnit> found = this.index.get(label);
+
+        if (found == null) {
+
+            String msg = "DataUnit With Label \"" + label + "\" Does Not Exist In Collection: " + this.getPath();
+            throw new Exception(msg);
+        }
+
+        return found;
+    }
+
+    // this method is used to check if a file has any content whatsoever, used in conjuntion with this.extract
+    // a file has content if it holds at least one line, which is the same as it not being zero bytes long
+    private boolean hasContent(File f) throws IOException {
+
+        return f.length() > 0;
+    }
+
+    // this method is used to find out which format a file with content is stored in, from the file itself
+    // throws exception if something goes wrong with reading file
+    private StorageFormat formatOf(File f) throws IOException {
+
+        if (CompressedFormat.isCompressed(f)) {
+
+            return StorageFormat.COMPRESSED;
+        }
+
+        return BinaryFormat.isBinary(f) ? StorageFormat.BINARY : StorageFormat.TEXT;
+    }
+
+    // this method is used to check if a file with content is stored in another format than the chosen one
+    // a binary file of an older version counts as another format, so that it gets checksums, and so does a binary or
+    // compressed file with the old magic bytes, so that it gets the new ones
+    // throws exception if something goes wrong with reading file
+    private boolean isOtherFormat(File f) throws IOException {
+
+        return this.formatOf(f) != this.format || BinaryFormat.isOutdated(f) || CompressedFormat.isOutdated(f);
+    }
+
+    // this method extracts all data from a file and fills the collections data units with said data
+    // the file is read into memory and scanned without regular expressions (see DataLoader and the formats)
+    // with lazy loading only labels are read if the file has an up to date index, else the index is made
+    // throws exception if something goes wrong while reading file, or if file is not formatted correctly
+    private void extract(File f, ArrayList<DataUnit> u) throws IOException {
+
+        long start = this.metrics.start(CollectionMetrics.Operation.LOAD);
+        boolean isIndexed = this.isLazy && !BinaryFormat.isOutdated(f); // units of old binary files have no checksums
+
+        if (isIndexed) {
+
+            // null if there is no up to date index
+            ArrayList<DataUnit> indexed = UnitIndex.read(f, this.interning(), this.metrics);
+            if (indexed != null) {
+
+                u.addAll(indexed);
+                this.metrics.record(CollectionMetrics.Operation.LOAD, start);
+                return;
+            }
+        }
+
+        ArrayList<long[]> positions = isIndexed ? new ArrayList<>() : null; // where every unit is in file
+        StorageFormat stored = this.formatOf(f); // found out from the file itself, not from the chosen format
+        int first = u.size(); // units of this file are added after this
+
+        if (stored == StorageFormat.COMPRESSED) {
+
+            CompressedFormat.load(f, u, positions);
+        }
+        else if (stored == StorageFormat.BINARY) {
+
+            BinaryFormat.load(f, u, positions);
+        }
+        else {
+
+            DataLoader.load(f, u, positions);
+        }
+
+        this.metrics.read(f.length());
+
+        for (int i = first; i < u.size() && this.interning() != null; i++) { // equal fragments are the same String
+
+            u.get(i).intern(this.dictionary);
+        }
+
+        if (isIndexed) { // units learn where they are stored, and the index is written for next time
+
+            ArrayList<DataUnit> loaded = new ArrayList<>(u.subList(first, u.size()));
+            long[] written = new long[loaded.size() * 3];
+
+            for (int i = 0; i < loaded.size(); i++) {
+
+                written[i * 3] = positions.get(i)[0];
+                written[i * 3 + 1] = positions.get(i)[1];
+            }
+
+            ArrayList<FragmentSource> sources = FileFragmentSource.sourcesOf(f, written, loaded.size(), stored,
+                    this.interning(), this.metrics);
+            for (int i = 0; i < loaded.size(); i++) {
+
+                loaded.get(i).relocate(sources.get(i), 0);
+            }
+
+            this.metrics.written(UnitIndex.write(f, loaded, written, stored));
+        }
+
+        this.metrics.record(CollectionMetrics.Operation.LOAD, start);
+    }
+
+    // this method is used to make the stamp of the file and journal as they are now (see Checkpoint)
+    // throws exception if something goes wrong while reading the attributes of file
+    private String stamp() throws IOException {
+
+        return Checkpoint.stampOf(this.file, this.journal == null ? 0 : this.journal.length());
+    }
+
+    // this method is used to read all units from the checkpoint instead of the file, if the checkpoint is up to date
+    // the journal must have been read, its records are already in the units of the checkpoint
+    // returns false if the checkpoint is missing, outdated or broken, no unit has been read then
+    // throws exception if something goes wrong while reading the attributes of file
+    private boolean restore() throws IOException {
+
+        long start = this.metrics.start(CollectionMetrics.Operation.LOAD);
+        long read = this.checkpoint.read(this.units, this.stamp(), this.interning());
+
+        if (read < 0) {
+
+            return false;
+        }
+
+        this.metrics.read(read);
+        this.metrics.record(CollectionMetrics.Operation.LOAD, start);
+        return true;
+    }
+
+    // this method is used to save all units to the checkpoint, if every change has been saved to file
+    // units are copied to memory while collection is locked, the checkpoint is written after it is unlocked
+    // nothing is written if there are changes that have not been saved, or if the checkpoint is already up to date
+    // throws exception if something goes wrong with writing to file
+    private void writeCheckpoint() throws IOException {
+
+        Checkpoint target; // read while locked, since it is dropped if a write fails
+        ByteArrayOutputStream image;
+        String stamp;
+
+        this.lock.writeLock().lock();
+
+        try {
+
+            target = this.checkpoint;
+            if (target == null || this.batchDepth > 0 || this.isFlushing || this.isPendingAll
+                    || !this.pending.isEmpty()) {
+
+                return;
+            }
+
+            stamp = this.stamp();
+            if (target.isCurrent(stamp)) {
+
+                return;
+            }
+
+            image = Checkpoint.image(this.units, stamp);
+        }
+        finally {
+
+            this.lock.writeLock().unlock();
+        }
+
+        this.metrics.written(target.write(image, stamp, this.isSynced));
+        this.checkpointedAt = System.currentTimeMillis();
+    }
+
+    // this method is used to save a checkpoint, if the last one is at least interval milliseconds old
+    // a checkpoint that can't be written is skipped and counted in the metrics, the next start reads the file instead
+    private void checkpointIfDue(long interval) {
+
+        if (this.checkpoint != null && System.currentTimeMillis() - this.checkpointedAt >= interval) {
+
+            try {
+
+                this.writeCheckpoint();
+            }
+            catch (IOException exception) { // not needed to open collection, so the caller is not told
+
+                this.metrics.checkpointFailed();
+            }
+        }
+    }
+
+    // this method is used to stop saving checkpoints after a change could not be written to file
+    // it is unknown what made it to disk, so the units in memory may not be what the file holds
+    private void dropCheckpoint() {
+
+        if (this.checkpoint != null) {
+
+            this.checkpoint.delete();
+            this.checkpoint = null;
+        }
+    }
+
+    // this method is used for writing data units and their content to a stream, in the format of collection
+    // a unit that has not been loaded is copied from where it is stored, if it is stored in the same format
+    // returns the start, length and version of every unit in the stream, three numbers per unit
+    // throws exception if something goes wrong with writing to stream, the stream is not closed
+    private long[] writeUnits(OutputStream out, ArrayList<DataUnit> u) throws IOException {
+
+        if (this.format == StorageFormat.COMPRESSED) {
+
+            return CompressedFormat.write(out, u);
+        }
+        else if (this.format == StorageFormat.BINARY) {
+
+            return BinaryFormat.write(out, u);
+        }
+
+        return TextFormat.write(out, u);
+    }
+
+    // this method is used for writing data units to memory, in the format of collection
+    // throws exception if something goes wrong while writing
+    private UnitImage image(ArrayList<DataUnit> u) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long[] positions = this.writeUnits(bytes, u);
+        return new UnitImage(bytes, new ArrayList<>(u), positions);
+    }
+
+    // this method is used for printing out all data units and their content to a file
+    // units are written to a temporary file that is moved in place when done (see AtomicFiles)
+    // throws exception if something goes wrong with writing to file
+    private void printDataUnits(File f) throws IOException {
+
+        long[][] positions = new long[1][]; // where every unit is written, set when the units are written
+        File tmp = AtomicFiles.writeTemp(f, out -> positions[0] = this.writeUnits(out, this.units), this.isSynced);
+
+        this.metrics.written(tmp.length());
+        this.install(tmp, f, this.units, positions[0]);
+    }
+
+    // this method is used for writing content, made by image, to a file
+    // throws exception if something goes wrong with writing to file
+    private void printImage(File f, UnitImage image) throws IOException {
+
+        File tmp = AtomicFiles.writeTemp(f, out -> image.getBytes().writeTo(out), this.isSynced);
+
+        this.metrics.written(image.getBytes().size());
+        this.install(tmp, f, image.getUnits(), image.getPositions());
+    }
+
+    // this method is used to move a newly written file in place of an old one
+    // with lazy loading the written units learn where they are stored now, and the index of the file is rewritten
+    // throws exception if something goes wrong with moving the file or writing the index
+    private void install(File tmp, File f, ArrayList<DataUnit> u, long[] positions) throws IOException {
+
+        this.lock.writeLock().lock(); // no unit is loaded while the file is replaced and units still point to old positions
+
+        try {
+
+            AtomicFiles.replace(tmp, f, this.isSynced);
+
+            if (!this.isLazy) { // an index made earlier would be outdated now
+
+                UnitIndex.delete(f);
+                return;
+            }
+
+            ArrayList<FragmentSource> sources = FileFragmentSource.sourcesOf(f, positions, u.size(), this.format,
+                    this.interning(), this.metrics);
+            for (int i = 0; i < u.size(); i++) {
+
+                u.get(i).relocate(sources.get(i), positions[i * 3 + 2]);
+            }
+        }
+        finally {
+
+            this.lock.writeLock().unlock();
+        }
+
+        this.metrics.written(UnitIndex.write(f, u, positions, this.format));
+        this.trim(); // written units are stored as they are now, so they can be unloaded
+    }
+
+    // this method is used to describe a newly added unit as records, one for the unit and one per fragment
+    private ArrayList<String> records(DataUnit unit) {
+
+        ArrayList<String> records = new ArrayList<>();
+        records.add(Journal.record(Journal.ADD, unit.getLabel()));
+
+        for (String fragment : unit.getFragments()) {
+
+            records.add(Journal.record(Journal.FRAGMENT, unit.getLabel(), fragment));
+        }
+
+        return records;
+    }
+
+    // this method is used to save a change to file, records describe the change (see Journal)
+    // changes made in a batch or in write behind mode are saved later, others are written right away
+    // a change made under a stripe is written once the stripe is unlocked (see commitPending), records of every
+    // change are pending in the order the changes were made, so a journal is replayed in that order
+    // returns the generation that writes the change, to be given to commitPending, 0 if there is nothing to commit
+    // throws exception if something goes wrong with writing to file
+    private long persist(ArrayList<String> records) throws IOException {
+
+        synchronized (this.pendingLock) { // changes to units with different labels can be saved at the same time
+
+            if (this.segments != null) { // segments of the changed units have to be rewritten
+
+                for (String record : records) {
+
+                    this.dirtySegments.add(this.segments.keyOf(Journal.labelOf(record)));
+                }
+            }
+
+            this.pending.addAll(records);
+
+            if (this.batchDepth > 0 || this.flusher != null) { // saved when batch is committed or when flusher runs
+
+                this.schedule();
+                return 0;
+            }
+
+            if (!this.lock.isWriteLockedByCurrentThread()) { // written by commitPending, after the stripe is unlocked
+
+                return this.takenGeneration + 1; // the next time pending changes are taken, which can't happen meanwhile
+            }
+        }
+
+        this.persistPending(); // written with changes of other threads that are pending, which were made before
+        return 0;
+    }
+
+    // this method is an overloaded version of the one above, used when a change is described by one record
+    private long persist(String record) throws IOException {
+
+        ArrayList<String> records = new ArrayList<>();
+        records.add(record);
+        return this.persist(records);
+    }
+
+    // this method is used to save a change that can't be described by records, the whole file is rewritten
+    // throws exception if something goes wrong with writing to file
+    private void persistAll() throws IOException {
+
+        if (this.batchDepth > 0 || this.flusher != null) { // records made so far are covered by the rewrite
+
+            this.pending.clear();
+            this.isPendingAll = true;
+            this.schedule();
+            return;
+        }
+
+        this.pending.clear(); // pending changes of other threads are covered by the rewrite as well
+        this.isPendingAll = true;
+        this.persistPending();
+    }
+
+    // this method is used to let the flusher know there are changes to save, if there is no open batch
+    private void schedule() {
+
+        if (this.flusher != null && this.batchDepth == 0) {
+
+            this.flusher.schedule();
+        }
+    }
+
+    // this method is used to write changes to file right away
+    // a journaled collection appends the records to its journal, other collections rewrite the whole file
+    // throws exception if something goes wrong with writing to file
+    private void write(ArrayList<String> records, boolean isAll) throws IOException {
+
+        long start = this.metrics.start(CollectionMetrics.Operation.FLUSH);
+
+        try {
+
+            if (this.segments != null) {
+
+                this.printSegments(this.segmentImages(isAll), isAll);
+            }
+            else if (isAll || this.journal == null) {
+
+                this.printDataUnits(this.file);
+                if (this.journal != null) { // nothing is left to replay
+
+                    this.journal.reset();
+                }
+            }
+            else {
+
+                this.append(records);
+
+                // journal is compacted when it has grown bigger than the file, so appending stays cheap on average
+                if (this.isCompactionDue()) {
+
+                    this.printDataUnits(this.file);
+                    this.journal.reset();
+                }
+            }
+        }
+        catch (IOException exception) {
+
+            this.dropCheckpoint();
+            throw exception;
+        }
+        finally {
+
+            this.metrics.record(CollectionMetrics.Operation.FLUSH, start);
+        }
+    }
+
+    // this method is used to write the segments with changes to memory, or all segments if isAll is true
+    // a segment without units is mapped to null, so that its file is removed
+    // throws exception if something goes wrong while writing
+    private LinkedHashMap<String, UnitImage> segmentImages(boolean isAll) throws IOException {
+
+        LinkedHashMap<String, ArrayList<DataUnit>> grouped = new LinkedHashMap<>(); // segment key -> its units
+        for (String key : isAll ? this.segments.keys() : this.dirtySegments) {
+
+            grouped.put(key, new ArrayList<>());
+        }
+
+        for (DataUnit unit : this.units) { // units of segments without changes are skipped
+
+            String key = this.segments.keyOf(unit.getLabel());
+            ArrayList<DataUnit> group = isAll ? grouped.computeIfAbsent(key, k -> new ArrayList<>()) : grouped.get(key);
+
+            if (group != null) {
+
+                group.add(unit);
+            }
+        }
+
+        LinkedHashMap<String, UnitImage> images = new LinkedHashMap<>();
+        for (String key : grouped.keySet()) {
+
+            images.put(key, grouped.get(key).isEmpty() ? null : this.image(grouped.get(key)));
+        }
+
+        this.dirtySegments = new HashSet<>();
+        return images;
+    }
+
+    // this method is used to write segments, made by segmentImages, to their files
+    // the manifest is rewritten if a segment has been added or removed, or if isAll is true
+    // throws exception if something goes wrong with writing to file
+    private void printSegments(LinkedHashMap<String, UnitImage> images, boolean isAll) throws IOException {
+
+        boolean isChanged = isAll;
+
+        for (String key : images.keySet()) {
+
+            File segment = this.segments.fileOf(key);
+            if (images.get(key) == null) {
+
+                segment.delete();
+                UnitIndex.delete(segment);
+                isChanged = this.segments.keys().remove(key) || isChanged;
+            }
+            else {
+
+                this.printImage(segment, images.get(key));
+                isChanged = this.segments.keys().add(key) || isChanged;
+            }
+        }
+
+        if (isChanged) {
+
+            this.segments.write(this.isSynced);
+        }
+    }
+
+    // this method is used to append records to the journal
+    // throws exception if something goes wrong with writing to file
+    private void append(ArrayList<String> records) throws IOException {
+
+        long before = this.journal.length();
+        this.journal.append(records, this.isSynced);
+        this.metrics.written(this.journal.length() - before);
+    }
+
+    // this method is used to check if the journal has grown so big that the file should be rewritten
+    private boolean isCompactionDue() {
+
+        return this.journal.length() > Math.max(this.file.length(), MIN_COMPACTION_SIZE);
+    }
+
+    // this method is used to save all pending changes with one single write, those of a batch or of several threads
+    // every time pending changes are taken is a new generation, threads whose changes it takes learn if it failed
+    // collection must be locked for writing
+    // throws exception if something goes wrong with writing to file, all units are then written next time
+    private void persistPending() throws IOException {
+
+        long generation = ++this.takenGeneration;
+        ArrayList<String> records = this.pending;
+        boolean isAll = this.isPendingAll;
+        this.pending = new ArrayList<>();
+        this.isPendingAll = false;
+
+        if (isAll || !records.isEmpty()) {
+
+            try {
+
+                this.write(records, isAll);
+            }
+            catch (IOException | RuntimeException exception) { // unknown what made it to disk, a journal would miss it
+
+                this.isPendingAll = true;
+                this.commitFailure = exception;
+                throw exception;
+            }
+        }
+
+        this.savedGeneration = generation;
+    }
+
+    // this method is used by the flusher of a collection in write behind mode to save all pending changes
+    // units are copied to memory while collection is locked, the slow writing to disk is done after it is unlocked
+    // the whole collection is locked, so that no unit is changed while it is copied
+    // nothing is written while a batch is open, the batch schedules a new flush when it is committed
+    // throws exception if something goes wrong with writing to file, all units are then written next time
+    void writePending() throws IOException {
+
+        ArrayList<String> records;
+        UnitImage image = null; // content of the whole file, if it is rewritten
+        LinkedHashMap<String, UnitImage> segmentImages = null; // content of segments, if segmented
+        boolean isAll; // if the whole file, or all segments, are rewritten
+        long start = this.metrics.start(CollectionMetrics.Operation.FLUSH);
+
+        this.lock.writeLock().lock();
+
+        try {
+
+            if (this.batchDepth > 0 || (!this.isPendingAll && this.pending.isEmpty())) {
+
+                return;
+            }
+
+            records = this.pending;
+            isAll = this.isPendingAll;
+
+            if (this.segments != null) {
+
+                segmentImages = this.segmentImages(isAll);
+            }
+            else if (this.isPendingAll || this.journal == null) {
+
+                image = this.image(this.units);
+            }
+
+            this.pending = new ArrayList<>();
+            this.isPendingAll = false;
+            this.isFlushing = true;
+        }
+        finally {
+
+            this.lock.writeLock().unlock();
+        }
+
+        try {
+
+            if (segmentImages != null) {
+
+                this.printSegments(segmentImages, isAll);
+            }
+            else if (image == null) { // journaled collection, only the records are appended
+
+                this.append(records);
+
+                if (this.isCompactionDue()) {
+
+                    this.lock.writeLock().lock(); // rewrite covers all pending changes as well, so they are not appended again
+
+                    try {
+
+                        image = this.image(this.units);
+                        this.pending.clear();
+                        this.isPendingAll = false;
+                    }
+                    finally {
+
+                        this.lock.writeLock().unlock();
+                    }
+                }
+            }
+
+            if (image != null) {
+
+                this.printImage(this.file, image);
+                if (this.journal != null) { // nothing is left to replay
+
+                    this.journal.reset();
+                }
+            }
+        }
+        catch (IOException | RuntimeException exception) {
+
+            this.lock.writeLock().lock(); // it is unknown what made it to disk, so everything is written next time
+            this.isPendingAll = true;
+            this.lock.writeLock().unlock();
+
+            throw exception;
+        }
+        finally {
+
+            this.isFlushing = false;
+            this.metrics.record(CollectionMetrics.Operation.FLUSH, start);
+        }
+
+        this.checkpointIfDue(this.checkpointInterval); // periodic checkpoint, written by the flusher
+    }
+
+    // this method is used to redo a change that is recorded in the journal, the change is not saved again
+    // throws exception if the record is broken
+    private void apply(String[] record) throws IOException {
+
+        char operation = record[0].isEmpty() ? ' ' : record[0].charAt(0);
+
+        if (operation == Journal.ADD && record.length == 2) {
+
+            DataUnit unit = new DataUnit(record[1]);
+            this.units.add(unit);
+            this.index(unit);
+        }
+        else if (operation == Journal.FRAGMENT && record.length == 3 && !this.units.isEmpty()) {
+
+            DataUnit last = this.units.get(this.units.size() - 1); // fragment belongs to last added unit
+            last.append(this.intern(record[2]));
+        }
+        else if (operation == Journal.ADD_TO && record.length == 3) {
+
+            for (DataUnit unit : this.index.getOrDefault(record[1], new ArrayList<>())) {
+
+                unit.addTo(this.intern(record[2]));
+            }
+        }
+        else if (operation == Journal.REMOVE && record.length == 2) {
+
+            ArrayList<DataUnit> removed = this.unindex(record[1]);
+            if (removed != null) {
+
+                this.uncache(removed);
+                this.units.removeIf(unit -> unit.getLabel().equals(record[1]));
+            }
+        }
+        else if (operation == Journal.CLEAR_UNIT && record.length == 2) {
+
+            for (DataUnit unit : this.index.getOrDefault(record[1], new ArrayList<>())) {
+
+                unit.clear();
+            }
+        }
+        else {
+
+            throw new IOException("Broken Record In Journal: " + this.journal.getPath());
+        }
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to rewrite the file of a journaled collection and start its journal over
+    // it does nothing for a collection that is not journaled, since its file is always up to date
+    // throws exception if something goes wrong with writing to file
+    public void compact() throws IOException {
+
+        this.lock.writeLock().lock();
+
+        try {
 
-        this.file = new File(path); // makes connection to file
-        this.file.createNewFile(); // creates file if it does not exist
-        this.units = new ArrayList<>();
-        this.isEmpty = !(this.hasContent(this.file)); // to check if file has content, negated to suit use of field
+            if (this.journal != null) {
 
-        if (!this.isEmpty()) { // if file is not empty all data is extracted and written to list of units
+                this.persistAll();
+            }
+        }
+        finally {
 
-            this.extract(this.file, this.units);
+            this.lock.writeLock().unlock();
         }
     }
 
-    // ctor 2, connects to a file with specified name, list of units is given some starting values from user
-    // content from file is extracted if file is NOT empty
-    // throws IOException if something goes wrong with file creation/ connection
-    public DataCollection(String path, ArrayList<DataUnit> startingUnits) throws IOException {
-
-        this.file = new File(path); // makes connection to file
-        this.file.createNewFile(); // creates file if it does not exist
-        this.units = startingUnits;
-        this.isEmpty = !(this.hasContent(this.file)); // to check if file has content, negated to suit use of field
+    // this method is used to wait until all changes have been saved, changes in an open batch are not saved
+    // it does nothing for a collection that is not in write behind mode, since its changes are saved right away
+    // throws exception if saving has failed since the last time flush was called
+    public void flush() throws IOException {
 
-        if (!this.isEmpty()) { // if file is not empty all data is extracted and written to list of units
+        if (this.flusher != null) { // not locked, the flusher must be able to lock collection while this waits
 
-            this.extract(this.file, this.units);
+            this.flusher.flush();
         }
     }
 
-    /* INTERNAL */
+    // this method is used to save all changes and stop the flusher, the collection should not be changed after this
+    // a checkpointed collection then saves its units to the checkpoint, if it can't the next start reads the file
+    // fragments stored off the heap are freed, they can't be read after this
+    // throws exception if saving has failed since the last time flush was called
+    public void close() throws IOException {
 
-    // this method is used to check if a file has any content whatsoever, used in conjuntion with this.extract
-    // throws exception if something goes wrong with reading file
-    private boolean hasContent(File f) throws IOException {
+        this.metrics.unregister();
 
-        BufferedReader br = new BufferedReader(new FileReader(f)); // reading mechanism for file
+        try {
 
-        String line; // a line in the file
-        boolean result = false;
+            if (this.flusher != null) {
 
-        while ((line = br.readLine()) != null) { // result remains false until line doesn't hold an empty value
+                this.flusher.close();
+            }
 
-             result = true;
+            this.checkpointIfDue(0);
         }
+        finally { // memory off the heap is freed even if saving failed
+
+            if (this.arena != null) {
 
-        br.close();
-        return result;
+                this.arena.close();
+            }
+        }
     }
 
-    // this method extracts all data from a file and fills the collections data units with said data
-    // throws exception if something goes wrong while writing to file
-    private void extract(File f, ArrayList<DataUnit> u) throws IOException {
+    // this method is used to save all units to the checkpoint now, so that the next start doesn't read the file
+    // in write behind mode all changes are saved first, nothing is written while a batch is open
+    // it does nothing for a collection that is not checkpointed
+    // throws exception if saving changes fails, or if something goes wrong with writing to file
+    public void checkpoint() throws IOException {
 
-        BufferedReader br = new BufferedReader(new FileReader(f)); // reading mechanism for file
-        Pattern start = Pattern.compile("[a-zA-Z0-9_)]+ \\{"); // marker for beginning of a new unit
-        Pattern end = Pattern.compile("\\}"); // marker for end of a unit
-        String line; // a line in the file
-        Matcher matchStart; // matches a line from file with start charcter
-        Matcher matchEnd; // matches a line from file with end charcter
-        boolean inDataUnit = false; // checks if a line is in a data unit or not (between {, })
-        int lineCounter = 0; // the line in collection 
+        this.flush();
+        this.writeCheckpoint();
+    }
+
+    // this method is used to start a batch, changes are not saved until the batch is committed
+    // batches can be nested, changes are saved when the outermost batch is committed
+    public void beginBatch() {
 
-        while ((line = br.readLine()) != null) { // do the following if the line doesn't hold an empty value
+        this.lock.writeLock().lock();
+        this.batchDepth++;
+        this.lock.writeLock().unlock();
+    }
 
-            matchStart = start.matcher(line);
-            matchEnd = end.matcher(line);
-            lineCounter++; // incremeted with every new line that is read in
+    // this method is used to commit a batch, all changes made since beginBatch are saved with one single write
+    // throws exception if no batch has been started, or if something goes wrong with writing to file
+    public void commitBatch() throws IOException {
 
-            if (matchStart.find()) { // if start character is found in line, add that line as a new unit
+        this.lock.writeLock().lock();
 
-                u.add(new DataUnit(line));
-                inDataUnit = true;
-                continue;
-            }
-            else if (matchEnd.find()) { // if end character is found in line, go to next line
+        try {
 
-                inDataUnit = false;
-                continue;
+            if (this.batchDepth == 0) {
+
+                throw new IllegalStateException("No Batch Has Been Started In Collection: " + this.getPath());
             }
-            else if (!inDataUnit) { // to check if formatting is correct, if text is found outside unit => informs user
-                String msg = "Formatting Error In Line: " + lineCounter + "\nIn Collection :" + this.getPath();
-                throw new IOException(msg);
+
+            this.batchDepth--;
+
+            if (this.batchDepth == 0 && this.flusher != null) { // changes are saved by the flusher
+
+                this.schedule();
             }
-            else { // else add line as a new data fragment to the last added unit
+            else if (this.batchDepth == 0) {
 
-                int lastAddedUnit = u.size() - 1; // get index of last added unit
-                u.get(lastAddedUnit).addTo(line); // access last unit, added new fragment
+                this.persistPending();
             }
         }
+        finally {
 
-        br.close(); // closed connection to file
+            this.lock.writeLock().unlock();
+        }
     }
 
-    // this method is used for printing out all data units and their content to a file
-    // throws exception if something goes wrong with writing to file
-    private void printDataUnits(File f) throws IOException {
-
-        BufferedWriter bw = new BufferedWriter(new FileWriter(f)); // writing mechanism to file
-        for (int i = 0; i < this.size(); i++) { // writes all data units to storing file
+    // this method is used to run changes in a batch, the batch is committed when the changes are done
+    // the batch is committed even if a change fails, so that the file always matches the units in memory
+    // throws exception if a change fails, or if something goes wrong with writing to file
+    public void batch(Batch changes) throws IOException, Exception {
 
-            if (i == this.size() - 1) {
+        this.beginBatch();
 
-                bw.write(this.units.get(i).toString());
-            }
-            else {
+        try {
 
-                bw.write(this.units.get(i).toString() + "\n");
-            }
+            changes.run();
         }
+        finally {
 
-        bw.close(); // closed connection to file
+            this.commitBatch();
+        }
     }
 
-    /* USER INTERFACE */
-
     // this method is used for adding a new unit to collection
     // throws exception if something goes wrong with writing to file
     public void add(String label, String content) throws IOException {
 
-        this.units.add(new DataUnit(label, content)); // adds new unit
-        this.printDataUnits(this.file); // prints all units out to file
-        this.isEmpty = false; // changes status to NOT EMPTY, if file was empty before
+        this.add(new DataUnit(label, content));
     }
 
     // this is an overloaded method of the one above and is used for adding a new unit to collection
     // throws exception if something goes wrong with writing to file
     public void add(String label, ArrayList<String> content) throws IOException {
 
-        this.units.add(new DataUnit(label, content)); // adds new unit
-        this.printDataUnits(this.file); // prints all units out to file
-        this.isEmpty = false; // changes status to NOT EMPTY, if file was empty before
+        this.add(new DataUnit(label, content));
     }
 
     // this is an overloaded method of the one above and is used for adding a new EMPTY unit to collection
     // throws exception if something goes wrong with writing to file
     public void add(String label) throws IOException {
 
-        this.units.add(new DataUnit(label)); // adds new unit
-        this.printDataUnits(this.file); // prints all units out to file
-        this.isEmpty = false; // changes status to NOT EMPTY, if file was empty before
+        this.add(new DataUnit(label));
     }
 
     // this method is used for removing all occurrences a data unit with specific label
     // throws exception if a unit with specific label is not found
     public void remove(String targetLabel) throws IOException, Exception {
 
-        if (this.contains(targetLabel)) { // if collection contains a unit with specified label, the unit is removed
+        long start = this.metrics.start(CollectionMetrics.Operation.MUTATION);
+        this.lock.writeLock().lock();
 
-            for (int i = 0; i < this.size(); i++) { // goes through all units
+        try {
 
-                if (this.units.get(i).getLabel().equals(targetLabel)) { // tests if each units label matches specifed label
+            this.loadForSnapshots(this.lookup(targetLabel)); // throws exception if there is no unit with specified label
+            this.ownUnits();
+            this.unindexFragments(targetLabel);
+            this.uncache(this.unindex(targetLabel));
 
-                    this.units.remove(i); // removes unit with specified label, if found
-                }
-            }
+            // removes every unit with specified label, also units that are right next to each other
+            this.units.removeIf(unit -> unit.getLabel().equals(targetLabel));
 
-            this.printDataUnits(this.file); // prints out all remaining units
+            this.persist(Journal.record(Journal.REMOVE, targetLabel)); // saves all remaining units
+            this.isEmpty = this.units.isEmpty(); // checks if collection without removed unit is now empty
         }
-        else { // if not in collection, method throws a message informing the user
+        finally {
 
-            String msg = "DataUnit With Label \"" + targetLabel + "\" Does Not Exist In Collection: " + this.getPath();
-            throw new Exception(msg);
+            this.lock.writeLock().unlock();
+            this.metrics.record(CollectionMetrics.Operation.MUTATION, start);
+        }
+    }
+
+    // this method is used to remove every unit that filter accepts, all of them in one pass and with one single write
+    // filter is given read-only units (see forEachUnit), so it must not change collection
+    // returns the number of removed units, throws exception if something goes wrong with writing to file
+    public int removeIf(Predicate<DataUnit> filter) throws IOException {
+
+        long start = this.metrics.start(CollectionMetrics.Operation.MUTATION);
+        this.lock.writeLock().lock();
+
+        try {
+
+            return this.removeUnits(unit -> filter.test(unit.readOnly()));
         }
+        finally {
 
-        this.isEmpty = !(this.hasContent(this.file)); // checks if file without removed unit is now empty
+            this.lock.writeLock().unlock();
+            this.metrics.record(CollectionMetrics.Operation.MUTATION, start);
+            this.trim();
+        }
     }
 
-    // this method is used in the one above and is used for checking if a unit with specific label exists in collection
-    // throws exception if collection is empty or if hasContent() throws an exception
-    public boolean contains(String label) throws IOException, Exception {
+    // this method is used to remove every unit whose label is not in labels, in one pass and with one single write
+    // the fragments of the units are never read, returns the number of removed units
+    // throws exception if something goes wrong with writing to file
+    public int retainLabels(Set<String> labels) throws IOException {
+
+        long start = this.metrics.start(CollectionMetrics.Operation.MUTATION);
+        this.lock.writeLock().lock();
 
-        if (this.hasContent(this.file)) { // checks if collection is empty
+        try {
 
-            for (DataUnit unit : this.units) { // tests if each units label matches specifed label
+            return this.removeUnits(unit -> !labels.contains(unit.getLabel()));
+        }
+        finally {
 
-                if (unit.getLabel().equals(label)) { // unit is found, -> returns true
+            this.lock.writeLock().unlock();
+            this.metrics.record(CollectionMetrics.Operation.MUTATION, start);
+        }
+    }
 
-                    return true;
-                }
-            }
+    // this method is used for checking if a unit with specific label exists in collection, the file is never read
+    public boolean contains(String label) throws IOException, Exception {
 
-            return false;
+        long start = this.metrics.start(CollectionMetrics.Operation.LOOKUP);
+        this.lock.readLock().lock();
+
+        try {
+
+            return this.index.containsKey(label);
+        }
+        finally {
+
+            this.lock.readLock().unlock();
+            this.metrics.record(CollectionMetrics.Operation.LOOKUP, start);
         }
-        
-        return false;
-        // throw new Exception("DataCollection Is Empty"); // returns a message informing user about the emptiness of collection
     }
 
     // this method is used to see if a collection (file representng a collection) is empty
     public boolean isEmpty() {
 
-        return this.isEmpty;
+        this.lock.readLock().lock();
+
+        try {
+
+            return this.isEmpty;
+        }
+        finally {
+
+            this.lock.readLock().unlock();
+        }
     }
 
     // this method is used to see where the collection (text file representing a collection) is stored on the computer
@@ -226,33 +1662,77 @@ public class DataCollection {
     // this method is used for getting the size of the collection (number of units)
     public int size() {
 
-        return this.units.size();
+        this.lock.readLock().lock();
+
+        try {
+
+            return this.units.size();
+        }
+        finally {
+
+            this.lock.readLock().unlock();
+        }
     }
 
     // this method is used for clearing a collection clean. All data is lost forever if not copied to another collection
     // throws exception if something goes wrong while writing
     public void clear() throws IOException {
 
-        BufferedWriter bw = new BufferedWriter(new FileWriter(this.file)); // connection to file, writing mechanism
-        bw.write(""); // overwrite everything with an empty string
-        bw.close(); // closed connection
+        long start = this.metrics.start(CollectionMetrics.Operation.MUTATION);
+        this.lock.writeLock().lock();
+
+        try {
+
+            this.loadForSnapshots(this.units);
+            this.ownUnits();
+            this.uncache(this.units);
+            this.units.clear(); // deletes all units from list
+            this.index.clear();
+            this.sortedIndex.clear();
 
-        this.units.clear(); // deletes all units from list
-        this.isEmpty = true; // sets status to EMPTY
+            if (this.fragmentIndex != null) {
+
+                this.fragmentIndex.clear();
+            }
+
+            this.persistAll(); // an empty collection is an empty file, journal is started over as nothing is left to replay
+            this.isEmpty = true; // sets status to EMPTY
+        }
+        finally {
+
+            this.lock.writeLock().unlock();
+            this.metrics.record(CollectionMetrics.Operation.MUTATION, start);
+        }
     }
 
     // this method is used to copy over all data units from another collection, it will result in duplicates
+    // units of the other collection are copied before this one is locked, so two collections never wait for each other
     // throws exception if something happens while reading or writing between collections
     public void addContentsOf(DataCollection dc) throws IOException {
 
-        if (!dc.isEmpty()) { // checks if other collection is NOT empty
+        ArrayList<DataUnit> copied = dc.copyUnits();
+
+        if (!copied.isEmpty()) { // checks if other collection is NOT empty
+
+            this.lock.writeLock().lock();
 
-            for (DataUnit unit : dc.units) { // if so, goes through all units
+            try {
 
-                this.units.add(unit); // adds units to this collection
+                this.ownUnits();
+                for (DataUnit unit : copied) { // if so, goes through all units
+
+                    this.units.add(unit); // adds units to this collection
+                    this.index(unit);
+                    this.indexFragments(unit);
+                }
+
+                this.persistAll(); // prints out all units
+                this.isEmpty = this.units.isEmpty();
             }
+            finally {
 
-            this.printDataUnits(this.file); // prints out all units
+                this.lock.writeLock().unlock();
+            }
         }
     }
 
@@ -264,7 +1744,7 @@ public class DataCollection {
 
             DataCollection dc = (DataCollection) other; // casted to access behaviour and fields of a collection
 
-            return (this.units.equals(dc.units)); // uses ArrayList.equals to see if contents of collections are identical
+            return (this.copyUnits().equals(dc.copyUnits())); // uses ArrayList.equals to see if contents of collections are identical
         }
 
         return false;
@@ -275,27 +1755,35 @@ public class DataCollection {
     // also used in equals to get string representations of entire collections
     public String toString() {
 
-        if (!this.isEmpty) {
+        this.lock.readLock().lock();
 
-            String state = this.getPath() + ":\n"; // adds the path of collection
+        try {
 
-            for (int i = 0; i < this.size(); i++) { // goes through every unit and add their content to the string
+            if (!this.isEmpty) {
 
-                if (i == this.size() - 1) {
+                StringBuilder state = new StringBuilder(this.getPath()).append(":\n"); // adds the path of collection
 
-                    state += this.units.get(i).toString();
-                }
-                else {
+                for (int i = 0; i < this.units.size(); i++) { // goes through every unit and add their content to the string
+
+                    if (i > 0) {
 
-                    state += this.units.get(i).toString() + "\n";
+                        state.append('\n');
+                    }
+
+                    this.units.get(i).appendTo(state);
+                    this.trim();
                 }
+
+                return state.toString();
             }
+            else {
 
-            return state;
+                return null;
+            }
         }
-        else {
+        finally {
 
-            return null;
+            this.lock.readLock().unlock();
         }
     }
 
@@ -303,22 +1791,38 @@ public class DataCollection {
     // throws exception if unit with specified label does not exist
     public void addTo(String label, String fragment) throws IOException, Exception {
 
-        if (this.contains(label)) { // if collection contains a unit with specified label
+        long start = this.metrics.start(CollectionMetrics.Operation.MUTATION);
+        Lock held = this.lockFor(label);
+        long ticket;
+
+        try {
 
-            for (int i = 0; i < this.size(); i++) { // goes through all all units
+            for (DataUnit unit : this.lookup(label)) { // goes through all units with label, throws if there are none
 
-                if (this.units.get(i).getLabel().equals(label)) { // do the following if data unit is found
+                this.preserve(unit);
+                unit.addTo(this.intern(fragment)); // adds fragment to unit, equal fragments are the same String
 
-                    this.units.get(i).addTo(fragment); // adds fragment to unit
+                if (this.fragmentIndex != null) { // fragment is indexed as it is stored, formatting removed
+
+                    this.fragmentIndex.add(label, unit.getLastFragment());
                 }
             }
 
-            this.printDataUnits(this.file); // prints all data units with their content to file
+            ticket = this.persist(Journal.record(Journal.ADD_TO, label, fragment)); // saves all units with their content
         }
-        else {
-            // do the following if collection doesn't contain a unit with specified label
-            String msg = "DataUnit With Label \"" + label + "\" Does Not Exist In Collection: " + this.getPath();
-            throw new Exception(msg);
+        finally {
+
+            this.unlock(held);
+        }
+
+        try {
+
+            this.commitPending(ticket); // written right away, unless it is saved later
+        }
+        finally {
+
+            this.metrics.record(CollectionMetrics.Operation.MUTATION, start);
+            this.trim();
         }
     }
 
@@ -326,58 +1830,352 @@ public class DataCollection {
     // throws exception if something goes wrong while searching for unit, or printing all remaining units
     public void clearDataUnit(String label) throws IOException, Exception {
 
-        if (this.contains(label)) { // if collection contains a unit with specified label
+        long start = this.metrics.start(CollectionMetrics.Operation.MUTATION);
+        Lock held = this.lockFor(label);
+        long ticket;
+
+        try {
+
+            ArrayList<DataUnit> found = this.lookup(label); // throws exception if there is no unit with label
+            this.unindexFragments(label);
+
+            for (DataUnit unit : found) { // goes through all units with label
+
+                this.preserve(unit);
+                unit.clear(); // clears data unit
+            }
+
+            ticket = this.persist(Journal.record(Journal.CLEAR_UNIT, label)); // saves all remaining units
+        }
+        finally {
+
+            this.unlock(held);
+        }
+
+        try {
 
-            for (DataUnit unit : this.units) { // goes through all all units
+            this.commitPending(ticket); // written right away, unless it is saved later
+        }
+        finally {
+
+            this.metrics.record(CollectionMetrics.Operation.MUTATION, start);
+        }
+    }
+
+    // this method is used to replace fragments of all units in one pass, every fragment is replaced with what replacer
+    // returns for it, e.g. to correct the name of an exercise in every workout. Only units where a fragment is
+    // replaced by a different one are changed, and the file is written once, rewritten as no record replaces fragments
+    // replacer must not change collection, returns the number of changed units
+    // throws exception if something goes wrong with writing to file
+    public int replaceFragments(Function<String, String> replacer) throws IOException {
+
+        long start = this.metrics.start(CollectionMetrics.Operation.MUTATION);
+        this.lock.writeLock().lock();
+
+        try {
+
+            ArrayList<DataUnit> changed = new ArrayList<>();
+            ArrayList<ArrayList<String>> replacements = new ArrayList<>(); // new fragments of every changed unit
+
+            // all fragments are replaced before any unit changes, so a failing replacer changes nothing
+            for (DataUnit unit : this.units) {
+
+                List<String> view = unit.getFragmentView();
+                ArrayList<String> replaced = new ArrayList<>(view.size());
+                boolean isChanged = false;
+
+                for (String fragment : view) {
+
+                    String replacement = Objects.requireNonNull(replacer.apply(fragment), "Replacement Of: " + fragment);
+                    isChanged |= !replacement.equals(fragment);
+                    replaced.add(replacement);
+                }
+
+                if (isChanged) {
+
+                    changed.add(unit);
+                    replacements.add(replaced);
+                }
+
+                this.trim();
+            }
+
+            FragmentDictionary dictionary = this.interning();
+            for (int i = 0; i < changed.size(); i++) {
+
+                DataUnit unit = changed.get(i);
+                if (this.fragmentIndex != null) {
+
+                    this.fragmentIndex.remove(unit.getLabel(), unit.getFragmentView());
+                }
+
+                this.preserve(unit);
+                unit.replace(replacements.get(i));
 
-                if (unit.getLabel().equals(label)) { // do the following if data unit is found
+                if (dictionary != null) { // equal fragments are the same String, just like fragments read from file
 
-                    unit.clear(); // clears data unit
+                    unit.intern(dictionary);
                 }
+
+                this.indexFragments(unit);
+            }
+
+            if (!changed.isEmpty()) {
+
+                this.persistAll();
             }
 
-            this.printDataUnits(this.file); // prints all remaining units
+            return changed.size();
         }
-        else {
-            // do the following if collection doesn't contain a unit with specified label
-            String msg = "DataUnit With Label \"" + label + "\" Does Not Exist In Collection: " + this.getPath();
-            throw new Exception(msg);
+        finally {
+
+            this.lock.writeLock().unlock();
+            this.metrics.record(CollectionMetrics.Operation.MUTATION, start);
+            this.trim();
         }
     }
 
     // this method is used to get the content of a the first found unit with specified label
+    // throws exception if there is no unit with specified label
     public ArrayList<String> get(String label) throws Exception {
 
-        if (this.contains(label)) { // if a unit with specific label exists
+        long start = this.metrics.start(CollectionMetrics.Operation.LOOKUP);
+        this.lock.readLock().lock();
+
+        try {
+
+            return this.lookup(label).get(0).getFragments(); // units with the same label are indexed in order
+        }
+        finally {
+
+            this.lock.readLock().unlock();
+            this.metrics.record(CollectionMetrics.Operation.LOOKUP, start);
+            this.trim();
+        }
+    }
+
+    // this method is used to make a snapshot, a read-only view of collection as it is now (see Snapshot)
+    // nothing is copied, so it takes the same time for any size of collection. It should be closed when it is not used
+    public Snapshot snapshot() {
+
+        this.lock.writeLock().lock(); // waits for changes that are being made, so that no unit is half changed
+
+        try {
+
+            this.epoch++;
+            this.openSnapshots.add(this.epoch);
+            this.isUnitsShared = true;
+            return new Snapshot(this, this.units, this.index, this.sortedIndex, this.epoch);
+        }
+        finally {
+
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    // this method is used to find the labels of all units that hold a fragment with a specific token
+    // the token of a fragment is the text before its first "_" (see FragmentIndex), every label is listed once
+    // the fragment index is used if collection has one, else all units are searched in order
+    public ArrayList<String> find(String token) {
+
+        long start = this.metrics.start(CollectionMetrics.Operation.LOOKUP);
+        this.lock.readLock().lock();
+
+        try {
+
+            if (this.fragmentIndex != null) {
+
+                return this.fragmentIndex.find(token);
+            }
+
+            LinkedHashSet<String> found = new LinkedHashSet<>();
+            for (DataUnit unit : this.units) {
+
+                if (!found.contains(unit.getLabel()) && unit.anyFragment(f -> FragmentIndex.tokenOf(f).equals(token))) {
+
+                    found.add(unit.getLabel());
+                }
+            }
+
+            return new ArrayList<>(found);
+        }
+        finally {
+
+            this.lock.readLock().unlock();
+            this.metrics.record(CollectionMetrics.Operation.LOOKUP, start);
+            this.trim();
+        }
+    }
+
+    // this method is used to get the content of the first found unit with specified label, without copying it
+    // the view can't be changed, and it does not show changes made to the unit after it was made
+    // throws exception if there is no unit with specified label
+    public List<String> getView(String label) throws Exception {
+
+        long start = this.metrics.start(CollectionMetrics.Operation.LOOKUP);
+        this.lock.readLock().lock();
 
-            for (DataUnit unit : this.units) { // go through whole list
+        try {
 
-                if (unit.getLabel().equals(label)) { // if a first instance of unit with specific label is found
+            return this.lookup(label).get(0).getFragmentView();
+        }
+        finally {
+
+            this.lock.readLock().unlock();
+            this.metrics.record(CollectionMetrics.Operation.LOOKUP, start);
+            this.trim();
+        }
+    }
+
+    // this method is used to go through all units in order, without copying them
+    // the units are read-only, and collection is locked for reading meanwhile, so action must not change collection
+    public void forEachUnit(Consumer<DataUnit> action) {
+
+        this.lock.readLock().lock();
+
+        try {
+
+            for (DataUnit unit : this.units) {
+
+                action.accept(unit.readOnly());
+                this.trim();
+            }
+        }
+        finally {
+
+            this.lock.readLock().unlock();
+        }
+    }
+
+    // this method is used to get a stream of all units in order, the units are read-only
+    // the stream holds the units that are in collection now, except those that are removed before they are reached
+    // a parallel stream splits the units evenly, collection is not locked while the stream is used
+    public Stream<DataUnit> stream() {
+
+        return this.copyUnits().stream().map(this::readOnly).filter(Objects::nonNull);
+    }
+
+    // this method is used to get a spliterator over all units in order, the units are read-only (see stream)
+    public Spliterator<DataUnit> spliterator() {
+
+        return this.stream().spliterator();
+    }
+
+    // this method is used to get the content of the first unit of every label between from and to, both included
+    // labels are sorted, the content is given as views that can't be changed (see getView)
+    public LinkedHashMap<String, List<String>> getBetween(String from, String to) {
+
+        long start = this.metrics.start(CollectionMetrics.Operation.LOOKUP);
+        this.lock.readLock().lock();
+
+        try {
+
+            LinkedHashMap<String, List<String>> found = new LinkedHashMap<>();
 
-                    return unit.getFragments(); // return its fragments as a list
+            if (from.compareTo(to) <= 0) { // an empty range if from comes after to
+
+                for (ArrayList<DataUnit> units : this.sortedIndex.subMap(from, true, to, true).values()) {
+
+                    found.put(units.get(0).getLabel(), units.get(0).getFragmentView());
                 }
             }
+
+            return found;
+        }
+        finally {
+
+            this.lock.readLock().unlock();
+            this.metrics.record(CollectionMetrics.Operation.LOOKUP, start);
+            this.trim();
+        }
+    }
+
+    // this method is used to get the greatest label that is equal to or comes before label, null if there is none
+    public String floorLabel(String label) {
+
+        long start = this.metrics.start(CollectionMetrics.Operation.LOOKUP);
+        this.lock.readLock().lock();
+
+        try {
+
+            return this.sortedIndex.floorKey(label);
+        }
+        finally {
+
+            this.lock.readLock().unlock();
+            this.metrics.record(CollectionMetrics.Operation.LOOKUP, start);
+        }
+    }
+
+    // this method is used to get the smallest label that is equal to or comes after label, null if there is none
+    public String ceilingLabel(String label) {
+
+        long start = this.metrics.start(CollectionMetrics.Operation.LOOKUP);
+        this.lock.readLock().lock();
+
+        try {
+
+            return this.sortedIndex.ceilingKey(label);
+        }
+        finally {
+
+            this.lock.readLock().unlock();
+            this.metrics.record(CollectionMetrics.Operation.LOOKUP, start);
+        }
+    }
+
+    // this method is used to get all labels sorted from last to first, every label is listed once
+    public ArrayList<String> getLabelsDescending() {
+
+        this.lock.readLock().lock();
+
+        try {
+
+            return new ArrayList<>(this.sortedIndex.descendingKeySet());
+        }
+        finally {
+
+            this.lock.readLock().unlock();
         }
-        // else inform the user about the non-existence of a unit with specified label
-        String msg = "DataUnit With Label \"" + label + "\" Does Not Exist In Collection: " + this.getPath();
-        throw new Exception(msg);
+    }
+
+    // this method is used to get what collection has done since it was opened: how many times units have been
+    // loaded, looked up, changed and written to file, how long it took and how many bytes were read and written
+    public MetricsSnapshot getMetrics() {
+
+        return this.metrics.snapshot();
     }
 
     // diagnostics tool to check if all units are in the collection
     // throws exception if a collection is empty
     public ArrayList<String> getAllLabels() throws Exception {
 
-        if (!this.isEmpty()) { // if NOT empty, proceed
+        this.lock.readLock().lock();
 
-            ArrayList<String> labels = new ArrayList<String>(); // make a list for all labels
-            for (DataUnit unit : this.units) { // go through all units...
+        try {
 
-                labels.add(unit.getLabel()); //... and get their lables
+            if (!this.isEmpty()) { // if NOT empty, proceed
+
+                ArrayList<String> labels = new ArrayList<String>(); // make a list for all labels
+                for (DataUnit unit : this.units) { // go through all units...
+
+                    labels.add(unit.getLabel()); //... and get their lables
+                }
+
+                return labels; // return list of labels
             }
+        }
+        finally {
 
-            return labels; // return list of labels
+            this.lock.readLock().unlock();
         }
 
         throw new Exception("DataCollection Is Empty"); // else, inform user
     }
+
+    // this interface is used to pass changes to batch, for example: dc.batch(() -> { dc.add(a); dc.add(b); });
+    public interface Batch {
+
+        void run() throws Exception;
+    }
 }
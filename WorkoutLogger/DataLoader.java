@@ -0,0 +1,375 @@
+/* This class is used by DataCollection to read the units of a collection file. The file is read into memory (see
+ * AtomicFiles.read) and scanned byte by byte for the "label {" and "}" lines, so no line is turned into a String and no regular
+ * expression is run on it. Only the labels and fragments themselves become Strings.
+ *
+ * A line is read just like DataCollection always has: a line with a label character followed by " {" starts a
+ * new unit, a line with a "}" ends it, and every line in between is a fragment of the unit.
+ *
+ * A large file is split into chunks right after "}" lines, where no unit is open, and the chunks are read in
+ * parallel on the common ForkJoin pool. Their units are then added in the order of the file. If a chunk is not
+ * formatted correctly the file is read again on one thread, so the error tells the user the same line it always has.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class DataLoader {
+
+    private static final byte SPACE = ' ';
+    private static final byte START = '{';
+    private static final byte END = '}';
+    private static final byte NEWLINE = '\n';
+    private static final byte RETURN = '\r';
+
+    private static final int PARALLEL_SIZE = 4 * 1024 * 1024; // files smaller than this are read on one thread
+    private static final int CHUNK_SIZE = 1024 * 1024; // least number of bytes in a chunk that is read in parallel
+
+    private ByteBuffer buffer; // the content of the file
+    private String path; // the path of the collection, used in error messages
+    private Charset charset; // charset the collection file is written in
+    private byte[] scratch; // reused when formatting characters are removed from a line
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, prepares to read the content in buffer, path is only used to tell the user where an error is
+    public DataLoader(ByteBuffer buffer, String path) {
+
+        this.buffer = buffer;
+        this.path = path;
+        this.charset = Charset.defaultCharset(); // same charset as FileWriter, which writes the collection files
+        this.scratch = new byte[256];
+    }
+
+    /* INTERNAL */
+
+    // this method is used to check if a byte can be part of a label, [a-zA-Z0-9_)]
+    private static boolean isLabelByte(byte b) {
+
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_' || b == ')';
+    }
+
+    // this method is used to check if the line between from and to starts a unit, a label byte followed by " {"
+    private boolean isStart(int from, int to) {
+
+        for (int i = from + 1; i < to - 1; i++) {
+
+            if (this.buffer.get(i) == SPACE && this.buffer.get(i + 1) == START && isLabelByte(this.buffer.get(i - 1))) {
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // this method is used to check if the line between from and to ends a unit
+    private boolean isEnd(int from, int to) {
+
+        for (int i = from; i < to; i++) {
+
+            if (this.buffer.get(i) == END) {
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // this method is used to make sure the scratch array can hold a line of a specific length
+    private void fit(int length) {
+
+        if (this.scratch.length < length) {
+
+            this.scratch = new byte[Math.max(length, this.scratch.length * 2)];
+        }
+    }
+
+    // this method is used to get the label on a line that starts a unit, all spaces and { are removed
+    private String label(int from, int to) {
+
+        this.fit(to - from);
+        int length = 0;
+
+        for (int i = from; i < to; i++) {
+
+            byte b = this.buffer.get(i);
+            if (b != SPACE && b != START) {
+
+                this.scratch[length++] = b;
+            }
+        }
+
+        return new String(this.scratch, 0, length, this.charset);
+    }
+
+    // this method is used to get the fragment on a line, every run of four spaces (a tab) is removed
+    private String fragment(int from, int to) {
+
+        this.fit(to - from);
+        int length = 0;
+        int i = from;
+
+        while (i < to) {
+
+            if (i + 3 < to && this.buffer.get(i) == SPACE && this.buffer.get(i + 1) == SPACE
+                    && this.buffer.get(i + 2) == SPACE && this.buffer.get(i + 3) == SPACE) {
+
+                i += 4; // skips the tab
+            }
+            else {
+
+                this.scratch[length++] = this.buffer.get(i);
+                i++;
+            }
+        }
+
+        return new String(this.scratch, 0, length, this.charset);
+    }
+
+    // this method is used to find where the line that starts at from ends, the line break is not included
+    private int lineEnd(int from, int to) {
+
+        int lineEnd = from;
+        while (lineEnd < to && this.buffer.get(lineEnd) != NEWLINE && this.buffer.get(lineEnd) != RETURN) {
+
+            lineEnd++;
+        }
+
+        return lineEnd;
+    }
+
+    // this method is used to find where the next line starts, "\r\n", "\n" and "\r" are all line breaks
+    private int nextLine(int lineEnd, int to) {
+
+        int next = lineEnd;
+        if (next < to && this.buffer.get(next) == RETURN) {
+
+            next++;
+        }
+        if (next < to && this.buffer.get(next) == NEWLINE) {
+
+            next++;
+        }
+
+        return next;
+    }
+
+    // this method is used to find where the first line after a "}" line starts, at or after from
+    // no unit is open there, so the buffer can be split at it, returns to if there is none
+    private int boundaryAfter(int from, int to) {
+
+        int lineStart = this.nextLine(this.lineEnd(from, to), to); // from may be in the middle of a line
+
+        while (lineStart < to) {
+
+            int lineEnd = this.lineEnd(lineStart, to);
+            int next = this.nextLine(lineEnd, to);
+
+            if (!this.isStart(lineStart, lineEnd) && this.isEnd(lineStart, lineEnd)) { // same order as in parse
+
+                return next;
+            }
+
+            lineStart = next;
+        }
+
+        return to;
+    }
+
+    // this method is used to read all units of the buffer in chunks, in parallel, and add them to a list of units
+    // if positions is not null, the start and length of every unit is added to it, just like parse does
+    // throws exception if the buffer is not formatted correctly, or if the thread is interrupted while it waits
+    private void parseParallel(int chunkCount, ArrayList<DataUnit> u, ArrayList<long[]> positions) throws IOException {
+
+        int to = this.buffer.limit();
+        int[] bounds = new int[chunkCount + 1];
+        bounds[chunkCount] = to;
+
+        for (int i = 1; i < chunkCount; i++) {
+
+            bounds[i] = this.boundaryAfter(Math.max((int) ((long) to * i / chunkCount), bounds[i - 1]), to);
+        }
+
+        ArrayList<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+
+            int from = bounds[i];
+            int end = bounds[i + 1];
+            boolean isPositioned = positions != null;
+
+            tasks.add(ForkJoinPool.commonPool().submit(() -> { // every chunk has a loader of its own
+
+                Chunk chunk = new Chunk(isPositioned);
+                new DataLoader(this.buffer.duplicate(), this.path).parse(from, end, chunk.units, chunk.positions);
+                return chunk;
+            }));
+        }
+
+        ArrayList<Chunk> chunks = new ArrayList<>();
+        boolean isBroken = false;
+
+        for (ForkJoinTask<Chunk> task : tasks) { // every task is waited for, also after one has failed
+
+            try {
+
+                chunks.add(task.get());
+            }
+            catch (ExecutionException exception) {
+
+                isBroken = true;
+            }
+            catch (InterruptedException exception) {
+
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted While Loading Collection: " + this.path);
+            }
+        }
+
+        if (isBroken) { // read again on one thread, the error then has the number of the line in the whole file
+
+            this.parse(0, to, u, positions);
+            return;
+        }
+
+        for (Chunk chunk : chunks) { // merged in order of the file
+
+            u.addAll(chunk.units);
+            if (positions != null) {
+
+                positions.addAll(chunk.positions);
+            }
+        }
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to read all units in a file and add them to a list of units
+    // throws exception if something goes wrong while reading, or if the file is not formatted correctly
+    // if positions is not null, the start and length (in bytes) of every unit is added to it, see UnitIndex
+    public static void load(File f, ArrayList<DataUnit> u, ArrayList<long[]> positions) throws IOException {
+
+        ByteBuffer buffer = AtomicFiles.read(f);
+        DataLoader loader = new DataLoader(buffer, f.toString());
+        int chunkCount = Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, buffer.limit() / CHUNK_SIZE);
+
+        if (buffer.limit() < PARALLEL_SIZE || ForkJoinPool.getCommonPoolParallelism() < 2) {
+
+            loader.parse(0, buffer.limit(), u, positions);
+        }
+        else {
+
+            loader.parseParallel(chunkCount, u, positions);
+        }
+    }
+
+    // this method is used to read all units between two positions of the buffer and add them to a list of units
+    // the positions must be at the start of a line, if positions is not null the start and length of every unit
+    // is added to it, a unit goes from the start of its label line to the end of its } line (or its last line)
+    // throws exception if text is found outside of a unit, the message tells the user which line it is on
+    public void parse(int from, int to, ArrayList<DataUnit> u, ArrayList<long[]> positions) throws IOException {
+
+        int lineCounter = 0; // the line in collection
+        int lineStart = from; // where the current line starts
+        ArrayList<String> fragments = null; // fragments of the last added unit, null if no unit has been added
+        long[] position = null; // start and length of the last added unit, null if it has ended or is not asked for
+
+        while (lineStart < to) {
+
+            int lineEnd = this.lineEnd(lineStart, to); // where the current line ends
+            int next = this.nextLine(lineEnd, to); // where the next line starts
+            lineCounter++;
+
+            if (this.isStart(lineStart, lineEnd)) { // start of a new unit
+
+                fragments = new ArrayList<>();
+                u.add(DataUnit.restore(this.label(lineStart, lineEnd), fragments));
+
+                if (positions != null) {
+
+                    position = new long[] {lineStart, 0};
+                    positions.add(position);
+                }
+            }
+            else if (this.isEnd(lineStart, lineEnd)) { // end of a unit
+
+                fragments = null;
+            }
+            else if (fragments == null) { // text is found outside a unit => informs user
+
+                String msg = "Formatting Error In Line: " + lineCounter + "\nIn Collection :" + this.path;
+                throw new IOException(msg);
+            }
+            else { // a new data fragment of the last added unit
+
+                fragments.add(this.fragment(lineStart, lineEnd));
+            }
+
+            if (position != null) { // unit reaches to the end of this line
+
+                position[1] = lineEnd - position[0];
+                position = fragments == null ? null : position; // unit has ended
+            }
+
+            lineStart = next;
+        }
+    }
+
+    // this method is used to read the fragments of the first unit between two positions of the buffer
+    // used to load one unit at a time (see FileFragmentSource)
+    // throws exception if there is no unit between the positions
+    public ArrayList<String> parseFragments(int from, int to) throws IOException {
+
+        ArrayList<String> fragments = null;
+        int lineStart = from;
+
+        while (lineStart < to) { // same as parse, but stops at the end of the first unit
+
+            int lineEnd = this.lineEnd(lineStart, to);
+
+            if (fragments == null && this.isStart(lineStart, lineEnd)) {
+
+                fragments = new ArrayList<>();
+            }
+            else if (fragments != null && this.isEnd(lineStart, lineEnd)) {
+
+                return fragments;
+            }
+            else if (fragments != null) {
+
+                fragments.add(this.fragment(lineStart, lineEnd));
+            }
+
+            lineStart = this.nextLine(lineEnd, to);
+        }
+
+        if (fragments == null) {
+
+            throw new IOException("No DataUnit Found In Collection: " + this.path);
+        }
+
+        return fragments;
+    }
+
+    // this class holds what one chunk of a file is read into
+    private static class Chunk {
+
+        private ArrayList<DataUnit> units = new ArrayList<>(); // units of the chunk, in order
+        private ArrayList<long[]> positions; // start and length of every unit, null if they are not asked for
+
+        // ctor 1, an empty chunk, with room for positions if isPositioned is true
+        private Chunk(boolean isPositioned) {
+
+            this.positions = isPositioned ? new ArrayList<>() : null;
+        }
+    }
+}
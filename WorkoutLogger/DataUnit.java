@@ -2,15 +2,45 @@
  * This class represents a unit of data that consists of a label and content. The content consists of a list
  * of strings. Each string is called a fragment.
  *
- *  Author @qpeano [created 2022-01-28 | last updated 2022-02-05]
+ * A unit can be lazy, then its fragments are not read from file until they are first needed (see FragmentSource).
+ * A lazy unit of a collection with a memory budget tells the cache of the collection (see UnitCache) when it is read,
+ * loaded or changed, and can be unloaded again while it is stored as it is.
+ *
+ * The fragments of a unit can be packed (see FragmentPacker), into an arena off the heap (see FragmentArena) or into
+ * typed columns (see WorkoutColumns), they are then decoded every time they are read. A unit is packed when its
+ * collection is opened, when it is loaded and when a view of it is made after it has changed. A packed list can't be
+ * changed, so it is copied back to the heap when the unit changes, and an arena is told that the unit no longer uses
+ * the packed fragments.
+ *
+ * A unit can be read and changed by several threads, every method that touches the fragments locks the unit.
+ *
+ * The fragments can be read through a view (see getFragmentView) without copying them. The list is shared with the
+ * view until the unit is changed next time, only then is it copied, so a view never changes after it is made.
+ *
+ * A unit also keeps the fragments it had when snapshots of its collection were made (see Snapshot). Before it is
+ * changed it is told about the newest snapshot, and the fragments it has then are kept for that snapshot and all
+ * older ones. Kept fragments are dropped once no open snapshot needs them.
+ *
+ *  Author @qpeano [created 2022-01-28 | last updated 2026-10-18]
  */
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
 
 public class DataUnit {
 
     private String label; // name of specific unit of data
-    private ArrayList<String> fragments; // all the content the unit holds
+    private volatile List<String> fragments; // all the content the unit holds, null if it has not been loaded
+    private FragmentSource source; // where the unit is stored, null if it has changed since it was last written
+    private long version; // number of changes made to the unit
+    private boolean isShared; // if the list of fragments is used by a view, it is then copied before it is changed
+    private Version history; // fragments kept for snapshots, newest first, null if no snapshot needs any
+    private UnitCache cache; // told when the unit is read, loaded or changed, null if memory is not bounded
+    private FragmentPacker packer; // what the fragments are packed with, null if they are kept as they are
 
     /* CONSTRUCTORS */
 
@@ -37,6 +67,11 @@ public class DataUnit {
         this.fragments = new ArrayList<>();
     }
 
+    // ctor 4, used by restore and lazy, fields are set by the caller
+    private DataUnit() {
+
+    }
+
     /* INTERNAL */
 
     // this method is used to remove any formatting characters ({, }, and \t) from the label of a unit
@@ -69,21 +104,345 @@ public class DataUnit {
         return newInfo;
     }
 
+    // this method is used to get the fragments of the unit, they are loaded if they have not been
+    private List<String> fragments() {
+
+        List<String> loaded = this.fragments;
+
+        if (loaded == null) {
+
+            return this.load();
+        }
+
+        UnitCache cache = this.cache;
+        if (cache != null) {
+
+            cache.touch(this);
+        }
+
+        return loaded;
+    }
+
+    // this method is used to load the fragments of a lazy unit from its source
+    // throws an unchecked exception if something goes wrong while reading, as callers of the unit don't expect one
+    private synchronized List<String> load() {
+
+        if (this.fragments == null) { // could have been loaded by another thread while this one waited
+
+            try {
+
+                this.fragments = this.source.load();
+
+                if (this.cache != null) {
+
+                    this.cache.loaded(this, UnitCache.sizeOf(this.fragments));
+                }
+
+                this.pack();
+            }
+            catch (IOException exception) {
+
+                throw new UncheckedIOException("DataUnit \"" + this.label + "\" Could Not Be Loaded", exception);
+            }
+        }
+
+        return this.fragments;
+    }
+
+    // this method is used to get the fragments of the unit before they are changed, they are copied if a view uses them
+    private List<String> ownFragments() {
+
+        List<String> current = this.fragments(); // loaded first, since a unit is packed when it is loaded
+
+        if (this.isShared) {
+
+            this.fragments = new ArrayList<>(current);
+            this.isShared = false;
+            release(current);
+        }
+
+        return this.fragments;
+    }
+
+    // this method is used to tell the arena that fragments were packed into that the unit no longer uses them
+    private static void release(List<String> fragments) {
+
+        if (fragments instanceof FragmentArena.Fragments) {
+
+            ((FragmentArena.Fragments) fragments).release();
+        }
+    }
+
+    // this method is used to drop kept fragments that no open snapshot needs, oldest is the epoch of the oldest one
+    private void prune(long oldest) {
+
+        if (this.history != null && this.history.epoch < oldest) { // no snapshot needs any of them
+
+            this.history = null;
+            return;
+        }
+
+        for (Version version = this.history; version != null; version = version.older) {
+
+            if (version.older != null && version.older.epoch < oldest) { // all older ones are outdated as well
+
+                version.older = null;
+            }
+        }
+    }
+
+    // this method is used to mark that the unit has changed, the stored copy is then outdated
+    private void changed() {
+
+        this.source = null;
+        this.version++;
+
+        if (this.cache != null) {
+
+            this.cache.resize(this, UnitCache.sizeOf(this.fragments));
+        }
+    }
+
     /* USER INTERFACE */
 
     // this method is used to add a new fragment of data to unit
-    public void addTo(String fragment) {
+    public synchronized void addTo(String fragment) {
 
         String newFragment = this.formatFragment(fragment);
-        this.fragments.add(newFragment);
+        this.ownFragments().add(newFragment);
+        this.changed();
+    }
+
+    // this method is used to make a unit out of a label and fragments that are already formatted, nothing is removed
+    // the list is used as it is, not copied. Used by DataCollection when units are read from file
+    static DataUnit restore(String label, ArrayList<String> fragments) {
+
+        DataUnit unit = new DataUnit();
+        unit.label = label;
+        unit.fragments = fragments;
+        return unit;
+    }
+
+    // this method is used to make a lazy unit, its fragments are loaded from source when they are first needed
+    static DataUnit lazy(String label, FragmentSource source) {
+
+        DataUnit unit = new DataUnit();
+        unit.label = label;
+        unit.source = source;
+        return unit;
+    }
+
+    // this method is used to replace every fragment with the equal one of a dictionary, so that equal fragments of all
+    // units are the same String (see FragmentDictionary), a unit that is not loaded is interned when it is loaded
+    synchronized void intern(FragmentDictionary dictionary) {
+
+        if (this.fragments != null && !this.isShared) {
+
+            dictionary.internAll(this.fragments);
+        }
+    }
+
+    // this method is used to put the unit in a cache (see UnitCache), or to take it out of its cache if cache is null
+    synchronized void cacheIn(UnitCache cache) {
+
+        if (this.cache != null && this.cache != cache) {
+
+            this.cache.forget(this);
+        }
+
+        this.cache = cache;
+        if (cache != null && this.fragments != null) {
+
+            cache.resize(this, UnitCache.sizeOf(this.fragments));
+        }
+    }
+
+    // this method is used by a cache to drop the fragments of the unit, they are loaded again when they are needed
+    // only a unit that is stored as it is can be unloaded, returns false if it has changed since it was last written
+    // views and kept fragments that have been handed out still hold the fragments they were made with
+    synchronized boolean unload() {
+
+        if (this.fragments == null || this.source == null) {
+
+            return false;
+        }
+
+        this.fragments = null;
+        this.isShared = false;
+
+        if (this.cache != null) {
+
+            this.cache.forget(this);
+        }
+
+        return true;
+    }
+
+    // this method is used to choose what the fragments of the unit are packed with (see FragmentPacker), they are
+    // packed the next time the unit is packed, loaded or viewed
+    synchronized void packWith(FragmentPacker packer) {
+
+        this.packer = packer;
+    }
+
+    // this method is used to pack the fragments of the unit, also fragments that were packed by another packer, e.g.
+    // when units are moved to a new arena (see FragmentArena)
+    // a unit that is not loaded, or whose fragments are kept for a snapshot, is left as it is
+    synchronized void pack() {
+
+        if (this.packer != null && this.fragments != null && this.history == null
+                && !this.packer.isPacked(this.fragments)) {
+
+            this.fragments = this.packer.pack(this.fragments);
+            this.isShared = true; // the packed list can't be changed, it is copied before the unit changes
+        }
+    }
+
+    // this method is used to tell the arena that the fragments of a removed unit are no longer used
+    // snapshots that still hold the unit can read them until the arena is closed
+    synchronized void release() {
+
+        release(this.fragments);
+    }
+
+    // this method is used to check if the fragments of the unit are in memory
+    boolean isLoaded() {
+
+        return this.fragments != null;
+    }
+
+    // this method is used to get where the unit is stored, null if it has changed since it was last written
+    synchronized FragmentSource getSource() {
+
+        return this.source;
+    }
+
+    // this method is used to get the number of changes made to the unit
+    synchronized long getVersion() {
+
+        return this.version;
+    }
+
+    // this method is used to tell the unit where it has been written, used by DataCollection after writing a file
+    // nothing happens if the unit has changed since version, the written copy is outdated then
+    synchronized void relocate(FragmentSource source, long version) {
+
+        if (this.version == version) {
+
+            this.source = source;
+        }
+    }
+
+    // this method is used to get the last fragment of unit, null if it has none
+    // used by DataCollection to index a fragment after it has been added, as it is stored
+    synchronized String getLastFragment() {
+
+        List<String> fragments = this.fragments();
+        return fragments.isEmpty() ? null : fragments.get(fragments.size() - 1);
+    }
+
+    // this method is used to check if any fragment of unit passes a test, without copying the fragments
+    synchronized boolean anyFragment(Predicate<String> test) {
+
+        for (String fragment : this.fragments()) {
+
+            if (test.test(fragment)) {
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // this method is used to keep the fragments the unit has now for snapshots, it must be called before it changes
+    // epoch is the epoch of the newest open snapshot (0 if there is none), oldest the epoch of the oldest one
+    synchronized void preserve(long epoch, long oldest) {
+
+        this.prune(oldest);
+
+        if (epoch > 0 && (this.history == null || this.history.epoch < epoch)) { // not kept for this snapshot yet
+
+            this.history = new Version(epoch, this.fragments(), this.history);
+            this.isShared = true; // the kept list must not be changed
+        }
+    }
+
+    // this method is used to get the fragments that were kept for a snapshot, null if the unit has not changed since
+    private List<String> keptAt(long epoch) {
+
+        List<String> kept = null;
+        for (Version version = this.history; version != null && version.epoch >= epoch; version = version.older) {
+
+            kept = version.fragments; // the oldest one that was kept for this snapshot or a newer one
+        }
+
+        return kept;
+    }
+
+    // this method is used to read the content the unit had when a snapshot was made, without copying it
+    // the view can't be changed (see getFragmentView)
+    synchronized List<String> getFragmentViewAt(long epoch) {
+
+        List<String> kept = this.keptAt(epoch);
+        return kept != null ? Collections.unmodifiableList(kept) : this.getFragmentView();
+    }
+
+    // this method is used to read the content the unit had when a snapshot was made, if it is in memory
+    // returns null if the fragments have to be loaded from file first, getFragmentViewAt loads them
+    synchronized List<String> getLoadedViewAt(long epoch) {
+
+        List<String> kept = this.keptAt(epoch);
+
+        if (kept != null) {
+
+            return Collections.unmodifiableList(kept);
+        }
+
+        return this.fragments != null ? this.getFragmentView() : null;
+    }
+
+    // this method is used to make a read-only unit out of a label and a view of fragments (see getFragmentView)
+    // used by DataCollection when units of a snapshot are handed out to callers
+    static DataUnit readOnly(String label, List<String> view) {
+
+        DataUnit unit = new DataUnit();
+        unit.label = label;
+        unit.fragments = view;
+        return unit;
+    }
+
+    // this method is used to add a fragment exactly as it is, without removing formatting characters
+    // used by DataCollection when units are restored
+    synchronized void append(String fragment) {
+
+        this.ownFragments().add(fragment);
+        this.changed();
+    }
+
+    // this method is used to replace all fragments of the unit at once, formatting characters are removed from them
+    // used by DataCollection when fragments of many units are replaced in one go (see replaceFragments)
+    synchronized void replace(List<String> fragments) {
+
+        ArrayList<String> newFragments = new ArrayList<>(fragments.size());
+        for (String fragment : fragments) {
+
+            newFragments.add(this.formatFragment(fragment));
+        }
+
+        release(this.fragments);
+        this.fragments = newFragments;
+        this.isShared = false;
+        this.changed();
     }
 
     // this method is used to remove a fragment from unit, throws Exception if fragment doesn't exist
-    public void remove(String targetFragment) throws Exception {
+    public synchronized void remove(String targetFragment) throws Exception {
 
         if (this.hasFragment(targetFragment)) { // if collection has a fragment
 
-            this.fragments.remove(targetFragment); // removes fragment
+            this.ownFragments().remove(targetFragment); // removes fragment
+            this.changed();
         }
         else {
 
@@ -99,9 +458,9 @@ public class DataUnit {
     }
 
     // this method is used to get a copy of the content of a unit
-    public ArrayList<String> getFragments() {
+    public synchronized ArrayList<String> getFragments() {
 
-        ArrayList<String> fragmentsCopy = new ArrayList<String>(this.fragments);
+        ArrayList<String> fragmentsCopy = new ArrayList<String>(this.fragments());
         return fragmentsCopy;
     }
 
@@ -109,39 +468,88 @@ public class DataUnit {
     // diagnostics tool to see if everything works and printing tool for the DataCollection class
     public String toString() {
 
-        String state = this.label + " {\n"; // label of unit
+        StringBuilder state = new StringBuilder();
+        this.appendTo(state);
+        return state.toString();
+    }
 
-        for (int i = 0; i < this.fragments.size(); i++) { // goes through whole list of fragment and gets their content
+    // this method is used to write the unit as text, in the same way as toString, without making a String
+    // used by toString and when collections are written (see TextFormat)
+    public synchronized void appendTo(StringBuilder state) {
 
-            if (i == this.fragments.size() - 1) { // if it's the last fragment, dont add newline char
+        state.append(this.label).append(" {\n"); // label of unit
+        List<String> fragments = this.fragments();
 
-                state += "    " + this.fragments.get(i); // adds a tab
-            }
-            else { // else, add a newline char
+        for (int i = 0; i < fragments.size(); i++) { // goes through whole list of fragment and gets their content
+
+            state.append("    ").append(fragments.get(i)); // adds a tab
+            if (i < fragments.size() - 1) { // if it's the last fragment, dont add newline char
 
-                state += "    " + this.fragments.get(i) + "\n"; // adds a tab and newline
+                state.append('\n');
             }
         }
 
-        state += "\n}";
-        return state;
+        state.append("\n}");
     }
 
     // method is used to check if a unit contains a specific fragment
-    public boolean hasFragment(String target) {
+    public synchronized boolean hasFragment(String target) {
 
-        return this.fragments.contains(target);
+        return this.fragments().contains(target);
     }
 
     // method is used to see how many data fragment a unit contains
-    public int size() {
+    public synchronized int size() {
 
-        return this.fragments.size();
+        return this.fragments().size();
     }
 
     // method is used to clear a data unit of all its fragment
-    public void clear() {
+    public synchronized void clear() {
 
+        release(this.fragments);
         this.fragments = new ArrayList<>();
+        this.isShared = false;
+        this.changed();
+    }
+
+    // this method is used to read the content of a unit without copying it, the view can't be changed
+    // the view shows the fragments as they are now, later changes to the unit are not seen in it
+    public synchronized List<String> getFragmentView() {
+
+        this.fragments(); // loaded first
+        this.pack(); // a unit that has changed is packed again
+        this.isShared = true;
+
+        List<String> fragments = this.fragments;
+        if (this.packer != null && this.packer.isPacked(fragments)) { // already can't be changed
+
+            return fragments;
+        }
+
+        return Collections.unmodifiableList(fragments);
+    }
+
+    // this method is used to make a read-only copy of a unit, it shares the fragments of the unit (see getFragmentView)
+    // its fragments can't be changed, used by DataCollection when units are handed out to callers
+    DataUnit readOnly() {
+
+        return readOnly(this.label, this.getFragmentView());
+    }
+
+    // this class holds the fragments a unit had when a snapshot was made, for that snapshot and older ones
+    private static class Version {
+
+        private long epoch; // epoch of the newest snapshot the fragments are kept for
+        private List<String> fragments; // the fragments, never changed
+        private Version older; // fragments kept for older snapshots, null if there are none
+
+        // ctor 1, keeps fragments for snapshots up to epoch
+        private Version(long epoch, List<String> fragments, Version older) {
+
+            this.epoch = epoch;
+            this.fragments = fragments;
+            this.older = older;
+        }
     }
 }
@@ -0,0 +1,59 @@
+/* Enum lists the units the intensity of an exercise can be logged in, weight in kilograms or time in seconds
+ * or minutes
+ *
+ * @qpeano [created: 2026-10-18 | last updated: 2026-10-18]
+ */
+
+public enum ExerciseUnit {
+
+    KG("kg"),
+    SEC("sec"),
+    MIN("min");
+
+    /* FIELDS */
+
+    private final String suffix; // how the unit is written after the intensity, e.g. "80kg"
+
+    /* METHODS - constructor */
+
+    /**
+     * Constructor
+     *
+     * @param suffix how the unit is written after the intensity
+     */
+    ExerciseUnit(String suffix) {
+
+        this.suffix = suffix;
+    }
+
+    /* METHODS - UI */
+
+    /**
+     * Method is used to get how the unit is written after the intensity
+     *
+     * @return the suffix, e.g. "kg"
+     */
+    public String getSuffix() {
+
+        return this.suffix;
+    }
+
+    /**
+     * Method is used to get the unit that an intensity is written in
+     *
+     * @param intensity the intensity with its unit, e.g. "80kg"
+     * @return the unit, null if the intensity does not end with any unit
+     */
+    public static ExerciseUnit of(String intensity) {
+
+        for (ExerciseUnit unit : values()) {
+
+            if (intensity.endsWith(unit.suffix)) {
+
+                return unit;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,153 @@
+/* This class is a FragmentSource for a unit that is stored in a collection file (or segment file). It knows where in
+ * the file the unit starts and how many bytes it takes, and reads only those bytes when the unit is loaded.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+public class FileFragmentSource implements FragmentSource {
+
+    private File file; // where the unit is stored
+    private long offset; // where in the file the unit starts
+    private int length; // number of bytes the unit takes
+    private boolean isBinary; // if the unit is stored in the binary format
+    private FragmentDictionary components; // dictionary of the file, if the unit is stored in the binary format
+    private FragmentDictionary dictionary; // fragments are interned in this when they are loaded, can be null
+    private CollectionMetrics metrics; // loads and bytes read are counted in this, can be null
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, a unit that takes length bytes from offset in file, stored as text
+    public FileFragmentSource(File file, long offset, int length) {
+
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    // ctor 2, a unit that takes length bytes from offset in file, stored in the binary format with the dictionary
+    // components (see BinaryFormat)
+    public FileFragmentSource(File file, long offset, int length, FragmentDictionary components) {
+
+        this(file, offset, length);
+        this.isBinary = true;
+        this.components = components;
+    }
+
+    /* INTERNAL */
+
+    // this method is used to read the bytes of the unit
+    // throws exception if something goes wrong while reading, or if the file is shorter than expected
+    private ByteBuffer read() throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(this.length);
+        FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ);
+
+        try {
+
+            while (buffer.hasRemaining()) {
+
+                if (channel.read(buffer, this.offset + buffer.position()) < 0) {
+
+                    throw new IOException("DataUnit Is Cut Short In Collection: " + this.file);
+                }
+            }
+        }
+        finally {
+
+            channel.close();
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to make a source for every unit of a file, in the order the units are stored in
+    // positions holds the start, length and version of every unit, three numbers per unit (see DataCollection.writeUnits)
+    // units of a compressed file are given sources that share the block they are stored in (see BlockFragmentSource)
+    // fragments are interned in dictionary when they are loaded, and loads are counted in metrics, both can be null
+    // throws exception if the file can not be read
+    public static ArrayList<FragmentSource> sourcesOf(File f, long[] positions, int count, StorageFormat format,
+                                                      FragmentDictionary dictionary, CollectionMetrics metrics)
+            throws IOException {
+
+        if (format == StorageFormat.COMPRESSED) {
+
+            return BlockFragmentSource.sourcesOf(f, positions, count, dictionary, metrics);
+        }
+
+        // all units of a binary file share its dictionary, which is read once
+        FragmentDictionary components = format == StorageFormat.BINARY ? BinaryFormat.readDictionary(f) : null;
+        ArrayList<FragmentSource> sources = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+
+            FileFragmentSource source = components != null
+                    ? new FileFragmentSource(f, positions[i * 3], (int) positions[i * 3 + 1], components)
+                    : new FileFragmentSource(f, positions[i * 3], (int) positions[i * 3 + 1]);
+            source.dictionary = dictionary;
+            source.metrics = metrics;
+            sources.add(source);
+        }
+
+        return sources;
+    }
+
+    @Override
+    public ArrayList<String> load() throws IOException {
+
+        long start = System.nanoTime();
+        ByteBuffer buffer = this.read();
+        ArrayList<String> fragments = this.isBinary
+                ? BinaryFormat.readUnit(buffer, this.components)
+                : new DataLoader(buffer, this.file.toString()).parseFragments(0, this.length);
+
+        if (this.dictionary != null) {
+
+            this.dictionary.internAll(fragments);
+        }
+
+        if (this.metrics != null) {
+
+            this.metrics.read(this.length);
+            this.metrics.record(CollectionMetrics.Operation.LOAD, start);
+        }
+
+        return fragments;
+    }
+
+    @Override
+    public StorageFormat getFormat() {
+
+        return this.isBinary ? StorageFormat.BINARY : StorageFormat.TEXT;
+    }
+
+    @Override
+    public FragmentDictionary getDictionary() {
+
+        return this.components;
+    }
+
+    @Override
+    public long copyTo(OutputStream out) throws IOException {
+
+        ByteBuffer buffer = this.read();
+        out.write(buffer.array(), 0, this.length);
+
+        if (this.metrics != null) {
+
+            this.metrics.read(this.length);
+        }
+
+        return this.length;
+    }
+}
@@ -0,0 +1,241 @@
+/* This class is used by DataCollection to keep the fragments of its units off the heap. Fragments are stored as
+ * UTF-8 bytes one after another in large direct buffers (chunks), which the garbage collector never has to go through.
+ * A unit then only keeps where each of its fragments is stored and how many bytes it takes, in two arrays of
+ * numbers (see Fragments), and a fragment only becomes a String when it is handed out.
+ *
+ * The arena is only added to, a fragment is never removed. Units are packed into it when their collection is
+ * opened, a unit that is changed afterwards keeps its fragments on the heap again (see DataUnit.pack). The bytes of
+ * fragments that no unit uses anymore (dead bytes) are counted when a unit lets go of them (see release), and once
+ * they take more than the fragments that are used the collection packs its units into a new arena (see isWasteful),
+ * the old one is freed by the garbage collector once nothing reads from it. close frees the chunks right away.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+public class FragmentArena implements FragmentPacker {
+
+    private static final int CHUNK_SIZE = 1024 * 1024; // bytes of a chunk, a longer fragment gets a chunk of its own
+    private static final ByteBuffer[] CLOSED = new ByteBuffer[0]; // chunks of a closed arena
+
+    private volatile ByteBuffer[] chunks; // all chunks, the last one is filled up next
+    private int chunkCount; // number of chunks that are used
+    private int position; // where the next fragment goes in the last chunk
+    private long size; // number of bytes of all fragments
+    private long dead; // number of bytes of fragments that are no longer used (see release)
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, makes an empty arena, chunks are allocated when they are needed
+    public FragmentArena() {
+
+        this.chunks = new ByteBuffer[16];
+    }
+
+    /* INTERNAL */
+
+    // this method is used to store the bytes of a fragment, returns where it is stored, chunk in the high 32 bits
+    private synchronized long put(byte[] bytes) {
+
+        if (this.chunks == CLOSED) {
+
+            throw new IllegalStateException("Fragments Can Not Be Stored After Their Collection Is Closed");
+        }
+
+        if (this.chunkCount == 0 || this.position + bytes.length > this.chunks[this.chunkCount - 1].capacity()) {
+
+            if (this.chunkCount == this.chunks.length) {
+
+                this.chunks = Arrays.copyOf(this.chunks, this.chunkCount * 2);
+            }
+
+            this.chunks[this.chunkCount++] = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, bytes.length));
+            this.position = 0;
+            this.chunks = this.chunks; // published again, so readers see the new chunk
+        }
+
+        long address = ((long) (this.chunkCount - 1) << 32) | this.position;
+        this.chunks[this.chunkCount - 1].put(this.position, bytes);
+        this.position += bytes.length;
+        this.size += bytes.length;
+        return address;
+    }
+
+    // this method is used to get the chunk that a fragment stored at address is in
+    // throws an unchecked exception if the arena is closed
+    private ByteBuffer chunkOf(long address) {
+
+        ByteBuffer[] chunks = this.chunks;
+
+        if (chunks == CLOSED) {
+
+            throw new IllegalStateException("Fragments Can Not Be Read After Their Collection Is Closed");
+        }
+
+        return chunks[(int) (address >>> 32)];
+    }
+
+    // this method is used to read the bytes of a fragment that is stored at address
+    private byte[] get(long address, int length) {
+
+        byte[] bytes = new byte[length];
+        this.chunkOf(address).get((int) address, bytes);
+        return bytes;
+    }
+
+    // this method is used to check if the fragment that is stored at address has exactly the bytes of target
+    private boolean matches(long address, byte[] target) {
+
+        ByteBuffer chunk = this.chunkOf(address);
+        int offset = (int) address;
+
+        for (int i = 0; i < target.length; i++) {
+
+            if (chunk.get(offset + i) != target[i]) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to store a list of fragments, returns a list that reads them from the arena
+    @Override
+    public Fragments pack(List<String> fragments) {
+
+        long[] addresses = new long[fragments.size()];
+        int[] lengths = new int[fragments.size()];
+
+        for (int i = 0; i < fragments.size(); i++) {
+
+            byte[] bytes = fragments.get(i).getBytes(StandardCharsets.UTF_8);
+            addresses[i] = this.put(bytes);
+            lengths[i] = bytes.length;
+        }
+
+        return new Fragments(this, addresses, lengths);
+    }
+
+    // this method is used to check if a list of fragments is stored in the arena
+    @Override
+    public boolean isPacked(List<String> fragments) {
+
+        return fragments instanceof Fragments && ((Fragments) fragments).isIn(this);
+    }
+
+    // this method is used to get the number of bytes all fragments in the arena take
+    public synchronized long size() {
+
+        return this.size;
+    }
+
+    // this method is used to get the number of bytes of fragments that are no longer used
+    public synchronized long getDeadBytes() {
+
+        return this.dead;
+    }
+
+    // this method is used to check if dead bytes take more than the fragments that are used, and more than a chunk,
+    // units should then be packed into a new arena
+    public synchronized boolean isWasteful() {
+
+        return this.dead > this.size - this.dead && this.dead >= CHUNK_SIZE;
+    }
+
+    // this method is used to free all chunks, fragments stored in the arena can't be read after this
+    public synchronized void close() {
+
+        this.chunks = CLOSED;
+        this.chunkCount = 0;
+        this.position = 0;
+    }
+
+    // this class is a list of fragments that are stored in an arena, it can't be changed
+    // every fragment is decoded when it is read, and is not kept afterwards
+    public static class Fragments extends AbstractList<String> implements RandomAccess {
+
+        private final FragmentArena arena; // where the fragments are stored
+        private final long[] addresses; // where every fragment is stored (see put)
+        private final int[] lengths; // number of bytes of every fragment
+        private boolean isReleased; // if the fragments have been counted as dead
+
+        // ctor 1, fragments stored at addresses in arena
+        private Fragments(FragmentArena arena, long[] addresses, int[] lengths) {
+
+            this.arena = arena;
+            this.addresses = addresses;
+            this.lengths = lengths;
+        }
+
+        // this method is used to check if the fragments are stored in an arena
+        public boolean isIn(FragmentArena arena) {
+
+            return this.arena == arena;
+        }
+
+        // this method is used to count the fragments as dead, when no unit uses them anymore
+        // views and snapshots that still hold them can read them until the arena is closed
+        public void release() {
+
+            synchronized (this.arena) {
+
+                if (!this.isReleased) {
+
+                    this.isReleased = true;
+                    for (int length : this.lengths) {
+
+                        this.arena.dead += length;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String get(int index) {
+
+            return new String(this.arena.get(this.addresses[index], this.lengths[index]), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int size() {
+
+            return this.addresses.length;
+        }
+
+        @Override
+        // this method compares the bytes of the fragments with those of o, so no fragment is decoded
+        public int indexOf(Object o) {
+
+            if (!(o instanceof String)) {
+
+                return -1;
+            }
+
+            byte[] target = ((String) o).getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < this.addresses.length; i++) {
+
+                if (this.lengths[i] == target.length && this.arena.matches(this.addresses[i], target)) {
+
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+
+            return this.indexOf(o) >= 0;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/* This class is a dictionary of strings. Workouts repeat the same fragments, and the same parts of fragments (the
+ * exercise name before "_", the weight after it), over and over, and a dictionary keeps only one copy of each.
+ * Every string in the dictionary has an id, which is the number of strings that were added before it. Strings are
+ * never removed, so an id always stands for the same string.
+ *
+ * A collection keeps a dictionary of the fragments of all its units, and every fragment a unit gets is replaced
+ * with the equal one of the dictionary (see intern). Equal fragments are then the same String, which saves memory,
+ * and comparing two of them only compares references.
+ *
+ * A binary collection file keeps a dictionary of the components of its fragments, the parts between "_", and stores
+ * every fragment as the ids of its components (see BinaryFormat). Components that no unit of the file uses anymore
+ * are written as empty strings, and the dictionary of the file is made anew once most of it is empty.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+public class FragmentDictionary {
+
+    private ArrayList<String> values; // all strings, the id of a string is where it is in the list
+    private HashMap<String, Integer> ids; // the id of every string
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, makes an empty dictionary
+    public FragmentDictionary() {
+
+        this.values = new ArrayList<>();
+        this.ids = new HashMap<>();
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to get the id of a string, the string is added if it is not in the dictionary
+    public synchronized int idOf(String value) {
+
+        Integer id = this.ids.get(value);
+
+        if (id == null) {
+
+            id = this.values.size();
+            this.values.add(value);
+            this.ids.put(value, id);
+        }
+
+        return id;
+    }
+
+    // this method is used to get the id of a string without adding it, -1 if it is not in the dictionary
+    public synchronized int find(String value) {
+
+        Integer id = this.ids.get(value);
+        return id == null ? -1 : id;
+    }
+
+    // this method is used to get the string with an id, null if there is none
+    public synchronized String valueOf(int id) {
+
+        return id >= 0 && id < this.values.size() ? this.values.get(id) : null;
+    }
+
+    // this method is used to get the string of the dictionary that is equal to value, value is added if there is none
+    public synchronized String intern(String value) {
+
+        return this.values.get(this.idOf(value));
+    }
+
+    // this method is used to replace every string in a list with the equal string of the dictionary
+    public synchronized void internAll(List<String> values) {
+
+        for (int i = 0; i < values.size(); i++) {
+
+            values.set(i, this.intern(values.get(i)));
+        }
+    }
+
+    // this method is used to get the number of strings in the dictionary
+    public synchronized int size() {
+
+        return this.values.size();
+    }
+
+    // this method is used to make a copy of the dictionary, strings added to the copy are not added to this one
+    public synchronized FragmentDictionary copy() {
+
+        FragmentDictionary copy = new FragmentDictionary();
+        copy.values.addAll(this.values);
+        copy.ids.putAll(this.ids);
+        return copy;
+    }
+
+    // this method is used to write all strings of the dictionary to a stream, in the order of their ids
+    // throws exception if something goes wrong while writing to stream
+    public synchronized void write(OutputStream out) throws IOException {
+
+        BinaryFormat.writeVarint(out, this.values.size());
+        for (String value : this.values) {
+
+            BinaryFormat.writeString(out, value);
+        }
+    }
+
+    // this method is used to write the strings of the dictionary like write, but a string whose id is not in kept is
+    // written as an empty string, so that the other strings keep their ids
+    // throws exception if something goes wrong while writing to stream
+    public synchronized void write(OutputStream out, BitSet kept) throws IOException {
+
+        BinaryFormat.writeVarint(out, this.values.size());
+        for (int id = 0; id < this.values.size(); id++) {
+
+            BinaryFormat.writeString(out, kept.get(id) ? this.values.get(id) : "");
+        }
+    }
+
+    // this method is used to count the empty strings in the dictionary, strings that were not kept are empty when
+    // the dictionary is read again (see write)
+    public synchronized int countEmpty() {
+
+        int count = 0;
+        for (String value : this.values) {
+
+            count += value.isEmpty() ? 1 : 0;
+        }
+
+        return count;
+    }
+
+    // this method is used to read a dictionary, written by write, at the current position of a buffer
+    // throws exception if the dictionary is broken
+    public static FragmentDictionary read(ByteBuffer buffer) throws IOException {
+
+        FragmentDictionary dictionary = new FragmentDictionary();
+        int count = BinaryFormat.readVarint(buffer);
+
+        if (count < 0 || count > buffer.remaining()) { // every string takes at least one byte
+
+            throw new IOException("Broken Dictionary At Byte: " + buffer.position());
+        }
+
+        for (int i = 0; i < count; i++) {
+
+            String value = BinaryFormat.readString(buffer);
+            dictionary.ids.putIfAbsent(value, i);
+            dictionary.values.add(value);
+        }
+
+        return dictionary;
+    }
+}
@@ -0,0 +1,73 @@
+/* This class is used by DataCollection to find units by the content of their fragments without going through all
+ * of them. It maps the token of every fragment to the labels of the units that hold a fragment with that token.
+ *
+ * The token of a fragment is the text before its first "_", or the whole fragment if it has no "_". For a workout
+ * that is the name of an exercise, so the index tells on which dates an exercise was done.
+ *
+ * A label is kept for a token as long as at least one fragment with the token is left in units with the label.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+public class FragmentIndex {
+
+    private HashMap<String, LinkedHashMap<String, Integer>> labels; // token -> label -> number of fragments with token
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, makes an empty index
+    public FragmentIndex() {
+
+        this.labels = new HashMap<>();
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to get the token of a fragment, the text before its first "_"
+    public static String tokenOf(String fragment) {
+
+        int end = fragment.indexOf('_');
+        return end < 0 ? fragment : fragment.substring(0, end);
+    }
+
+    // this method is used to add a fragment of a unit with a specific label to the index
+    public synchronized void add(String label, String fragment) {
+
+        this.labels.computeIfAbsent(tokenOf(fragment), token -> new LinkedHashMap<>()).merge(label, 1, Integer::sum);
+    }
+
+    // this method is used to remove fragments of a unit with a specific label from the index
+    public synchronized void remove(String label, List<String> fragments) {
+
+        for (String fragment : fragments) {
+
+            String token = tokenOf(fragment);
+            LinkedHashMap<String, Integer> found = this.labels.get(token);
+
+            if (found != null && found.computeIfPresent(label, (l, count) -> count > 1 ? count - 1 : null) == null
+                    && found.isEmpty()) { // no fragment with token is left in any unit
+
+                this.labels.remove(token);
+            }
+        }
+    }
+
+    // this method is used to get the labels of all units that hold a fragment with a specific token
+    // labels are in the order they were first found with the token, an empty list is returned if there are none
+    public synchronized ArrayList<String> find(String token) {
+
+        LinkedHashMap<String, Integer> found = this.labels.get(token);
+        return found == null ? new ArrayList<>() : new ArrayList<>(found.keySet());
+    }
+
+    // this method is used to empty the index
+    public synchronized void clear() {
+
+        this.labels.clear();
+    }
+}
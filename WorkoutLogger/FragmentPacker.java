@@ -0,0 +1,17 @@
+/* This interface is used by DataUnit to keep its fragments in a form that takes less memory than a list of
+ * Strings, e.g. off the heap (see FragmentArena) or split into typed columns (see WorkoutColumns). A packed list
+ * can't be changed, a unit copies it back to the heap before it changes and is packed again afterwards.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.util.List;
+
+public interface FragmentPacker {
+
+    // this method is used to pack fragments, returns a list that holds the same fragments and can't be changed
+    List<String> pack(List<String> fragments);
+
+    // this method is used to check if a list of fragments was packed by this packer
+    boolean isPacked(List<String> fragments);
+}
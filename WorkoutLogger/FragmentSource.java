@@ -0,0 +1,26 @@
+/* This interface is used by DataUnit to load its fragments when they are first needed, instead of when the unit is
+ * created. A source knows where the unit is stored and can read it from there.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+public interface FragmentSource {
+
+    // this method is used to read the fragments of the unit
+    // throws exception if something goes wrong while reading
+    ArrayList<String> load() throws IOException;
+
+    // this method is used to see which format the unit is stored in (see StorageFormat)
+    StorageFormat getFormat();
+
+    // this method is used to get the dictionary the stored unit is encoded with (see BinaryFormat), null if it has none
+    FragmentDictionary getDictionary();
+
+    // this method is used to copy the stored unit, exactly as it is stored, to a stream
+    // returns the number of bytes copied, throws exception if something goes wrong while reading or writing
+    long copyTo(OutputStream out) throws IOException;
+}
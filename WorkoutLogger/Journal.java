@@ -0,0 +1,243 @@
+/* This class is used in conjunction with DataCollection. Instead of rewriting the whole collection file every
+ * time something changes, a journaled collection appends one short record per change to a journal file. When the
+ * collection is opened again the journal is replayed on top of the collection file. Every now and then the
+ * collection file is rewritten (compacted) and the journal is started over.
+ *
+ * The first line of a journal is a header that holds the length and modification time of the collection file
+ * the journal was started on. If the collection file has changed since then (it has been compacted) the journal
+ * is stale and is ignored.
+ *
+ * Every record starts with a CRC32 checksum of the rest of the record, which is marked by a "C" at the end of the
+ * header (journals without it were written before checksums and are still read). A crash while records are appended
+ * can leave a half written record at the end of the journal. When the journal is read it stops at the first record
+ * whose checksum does not match, and cuts that record and everything after it off the file.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+public class Journal {
+
+    // the kinds of records a journal can hold
+    public static final char ADD = 'A'; // a new empty unit was added
+    public static final char FRAGMENT = 'F'; // a fragment was added to the last added unit
+    public static final char ADD_TO = 'T'; // a fragment was added to all units with a label
+    public static final char REMOVE = 'R'; // all units with a label were removed
+    public static final char CLEAR_UNIT = 'C'; // all units with a label were cleared
+
+    private static final char HEADER = 'J'; // marker for the header line
+    private static final char SEPARATOR = '\t'; // separates the parts of a record
+    private static final char CHECKSUMMED = 'C'; // marker at the end of the header, records have checksums
+    private static final int CHECKSUM_SIZE = 8; // checksum is written as 8 hexadecimal digits
+
+    private File file; // where the records are stored
+    private File base; // the collection file the journal is replayed on
+    private long length; // the size of the journal file in bytes
+    private boolean isChecksummed; // if records of the journal have checksums, false for journals from before that
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, connects to a journal file that belongs to the collection file base
+    public Journal(String path, File base) {
+
+        this.file = new File(path);
+        this.base = base;
+        this.length = this.file.length(); // 0 if file does not exist
+        this.isChecksummed = true;
+    }
+
+    /* INTERNAL */
+
+    // this method is used to make the header for the current state of the collection file
+    private String header() {
+
+        return HEADER + "" + SEPARATOR + this.base.length() + SEPARATOR + this.base.lastModified();
+    }
+
+    // this method is used to compute the checksum of a record, as 8 hexadecimal digits
+    private static String checksum(String record) {
+
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        String digits = Long.toHexString(crc.getValue());
+        return "00000000".substring(digits.length()) + digits;
+    }
+
+    // this method is used to check the checksum of a line in the journal, returns the record or null if it is broken
+    private static String verify(String line) {
+
+        if (line.length() <= CHECKSUM_SIZE || line.charAt(CHECKSUM_SIZE) != SEPARATOR) {
+
+            return null;
+        }
+
+        String record = line.substring(CHECKSUM_SIZE + 1);
+        return checksum(record).equals(line.substring(0, CHECKSUM_SIZE)) ? record : null;
+    }
+
+    // this method is used to find the next newline in bytes, starting at from, returns -1 if there is none
+    private static int lineEnd(byte[] bytes, int from) {
+
+        for (int i = from; i < bytes.length; i++) {
+
+            if (bytes[i] == '\n') {
+
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to make a record out of an operation and a label
+    public static String record(char operation, String label) {
+
+        return operation + "" + SEPARATOR + label;
+    }
+
+    // this method is used to make a record out of an operation, a label and a fragment
+    public static String record(char operation, String label, String fragment) {
+
+        return operation + "" + SEPARATOR + label + SEPARATOR + fragment;
+    }
+
+    // this method is used to get the label a record is about
+    public static String labelOf(String record) {
+
+        int end = record.indexOf(SEPARATOR, 2); // label starts after the operation and a separator
+        return end < 0 ? record.substring(2) : record.substring(2, end);
+    }
+
+    // this method is used to read all records in the journal, every record is split into its parts
+    // an empty list is returned if the journal is missing or does not belong to the current collection file
+    // a broken record at the end, left by a crash, is cut off the journal together with everything after it
+    // throws exception if something goes wrong while reading file
+    public ArrayList<String[]> read() throws IOException {
+
+        ArrayList<String[]> records = new ArrayList<>();
+
+        if (!this.file.exists()) {
+
+            return records;
+        }
+
+        byte[] bytes = Files.readAllBytes(this.file.toPath()); // journal is compacted before it grows big
+        int end = lineEnd(bytes, 0);
+        String header = end < 0 ? "" : new String(bytes, 0, end, StandardCharsets.UTF_8); // first line is the header
+
+        if (header.equals(this.header() + SEPARATOR + CHECKSUMMED) || header.equals(this.header())) {
+
+            this.isChecksummed = header.endsWith(SEPARATOR + "" + CHECKSUMMED);
+            int valid = end + 1; // where the last whole record ends
+
+            for (int start = valid; (end = lineEnd(bytes, start)) >= 0; start = end + 1) {
+
+                String line = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+                String record = this.isChecksummed && !line.isEmpty() ? verify(line) : line;
+
+                if (record == null) { // broken by a crash, nothing after it can be trusted
+
+                    break;
+                }
+
+                if (!record.isEmpty()) {
+
+                    records.add(record.split(SEPARATOR + "", 3)); // fragment is last, so it may hold separators itself
+                }
+
+                valid = end + 1;
+            }
+
+            if (valid < bytes.length) { // a half written record is cut off, so that new records don't follow it
+
+                FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.WRITE);
+                channel.truncate(valid);
+                channel.close();
+            }
+
+            this.length = valid;
+        }
+        else { // stale journal, it is started over on the next append
+
+            this.length = 0;
+        }
+
+        return records;
+    }
+
+    // this method is used to append records to the journal using one single write
+    // if isSynced is true it waits until the records are on the disk (fsync)
+    // throws exception if something goes wrong while writing to file
+    public void append(ArrayList<String> records, boolean isSynced) throws IOException {
+
+        if (this.length == 0) { // a new journal needs a header before any records
+
+            this.reset();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (String record : records) {
+
+            if (this.isChecksummed) {
+
+                sb.append(checksum(record)).append(SEPARATOR);
+            }
+
+            sb.append(record).append('\n');
+        }
+
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        FileOutputStream fos = new FileOutputStream(this.file, true); // opened in append mode
+        fos.write(bytes);
+
+        if (isSynced) {
+
+            fos.getFD().sync();
+        }
+
+        fos.close();
+
+        this.length += bytes.length;
+    }
+
+    // this method is used to start the journal over, it should be called right after the collection file is rewritten
+    // throws exception if something goes wrong while writing to file
+    public void reset() throws IOException {
+
+        byte[] bytes = (this.header() + SEPARATOR + CHECKSUMMED + "\n").getBytes(StandardCharsets.UTF_8);
+        FileOutputStream fos = new FileOutputStream(this.file); // truncates old journal
+        fos.write(bytes);
+        fos.close();
+
+        this.length = bytes.length;
+        this.isChecksummed = true;
+    }
+
+    // this method is used to remove the journal file, used when a collection is no longer journaled
+    public void delete() {
+
+        this.file.delete();
+        this.length = 0;
+    }
+
+    // this method is used to get the size of the journal in bytes
+    public long length() {
+
+        return this.length;
+    }
+
+    // this method is used to see where the journal is stored on the computer
+    public String getPath() {
+
+        return this.file.toString();
+    }
+}
@@ -0,0 +1,123 @@
+/* This class is used by CollectionMetrics to count how long operations take. Every duration falls in a bucket and
+ * only the number of durations per bucket is kept, so recording one is cheap and never takes a lock.
+ *
+ * Durations below 16 nanoseconds have a bucket each. Above that every power of two is split into 8 buckets of the
+ * same width, so a duration read back from the histogram (see valueAt) is never more than 1/8 from the real one.
+ * The counters of the buckets are striped (LongAdder), so threads that record at the same time don't slow each
+ * other down, and they are only made once a duration falls in their bucket.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+
+    private static final int EXACT = 16; // durations below this have a bucket each
+    private static final int SUB_BUCKETS = 8; // number of buckets every power of two is split into
+    private static final int BUCKET_COUNT = EXACT + (63 - 4) * SUB_BUCKETS; // enough for every positive long
+
+    private final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>(BUCKET_COUNT); // made when used
+    private final LongAdder total = new LongAdder(); // sum of all recorded durations
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0); // longest recorded duration
+
+    /* INTERNAL */
+
+    // this method is used to find the bucket of a duration
+    private static int bucketOf(long nanos) {
+
+        if (nanos < EXACT) {
+
+            return (int) Math.max(0, nanos);
+        }
+
+        int power = 63 - Long.numberOfLeadingZeros(nanos); // at least 4
+        int sub = (int) (nanos >>> (power - 3)) & (SUB_BUCKETS - 1);
+        return EXACT + (power - 4) * SUB_BUCKETS + sub;
+    }
+
+    // this method is used to get the longest duration that falls in a bucket
+    static long valueAt(int bucket) {
+
+        if (bucket < EXACT) {
+
+            return bucket;
+        }
+
+        int power = 4 + (bucket - EXACT) / SUB_BUCKETS;
+        long sub = (bucket - EXACT) % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (power - 3)) - 1;
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to record how long an operation took
+    public void record(long nanos) {
+
+        int index = bucketOf(nanos);
+        LongAdder bucket = this.buckets.get(index);
+
+        if (bucket == null) { // first duration in this bucket, only one thread gets to make its counter
+
+            this.buckets.compareAndSet(index, null, new LongAdder());
+            bucket = this.buckets.get(index);
+        }
+
+        bucket.increment();
+        this.total.add(nanos);
+        this.max.accumulate(nanos);
+    }
+
+    // this method is used to get the sum of all recorded durations, in nanoseconds
+    public long getTotal() {
+
+        return this.total.sum();
+    }
+
+    // this method is used to get the longest recorded duration, in nanoseconds
+    public long getMax() {
+
+        return this.max.get();
+    }
+
+    // this method is used to get the number of recorded durations in every bucket
+    // durations recorded while this runs may or may not be included
+    public long[] getCounts() {
+
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+
+            LongAdder bucket = this.buckets.get(i);
+            counts[i] = bucket == null ? 0 : bucket.sum();
+        }
+
+        return counts;
+    }
+
+    // this method is used to get the duration that a share of all durations, counted in counts, are shorter than
+    // share is between 0 and 1 (0.99 for the 99th percentile), returns 0 if nothing has been counted
+    public static long percentileOf(long[] counts, double share) {
+
+        long all = 0;
+        for (long count : counts) {
+
+            all += count;
+        }
+
+        long rank = (long) Math.ceil(share * all); // the rank-th shortest duration is the percentile
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) {
+
+                return valueAt(i);
+            }
+        }
+
+        return 0;
+    }
+}
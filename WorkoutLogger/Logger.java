@@ -4,6 +4,8 @@
  */
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.io.IOException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -16,6 +18,7 @@ public class Logger {
 
     private DataCollection workouts; // the thing that houses the workouts
     private String primDate; // the current date
+    private FragmentDictionary exerciseNames; // names of all exercises, shared by the columns of all workouts
 
     /* METHODS - constructor */
 
@@ -27,7 +30,21 @@ public class Logger {
      */
     public Logger(String fileName) throws IOException {
 
-        this.workouts = new DataCollection(fileName);
+        this(fileName, new StorageOptions());
+    }
+
+    /**
+     * Constructor, workouts are stored in columns (see WorkoutColumns) unless they are stored off the heap
+     *
+     * @param fileName the path to file
+     * @param options how the workouts are stored, see StorageOptions, its packer is set by the logger
+     * @throws IOException if program can't connect to file or if reading file goes wrong
+     */
+    public Logger(String fileName, StorageOptions options) throws IOException {
+
+        this.exerciseNames = new FragmentDictionary();
+        options.setPacker(options.isOffHeap() ? null : new WorkoutColumns.Packer(this.exerciseNames));
+        this.workouts = new DataCollection(fileName, options);
     }
 
     /* METHODS - internal */
@@ -93,23 +110,33 @@ public class Logger {
     }
 
     /**
-     * Method is used to return formatted exercises
+     * Method is used to get the exercises of a workout in columns, a workout is stored as columns already unless
+     * it is stored off the heap or has changed since it was last read, the columns are then made only for this call
      *
-     * @param exerises the exercises in raw format
-     * @return exercises but formatted
+     * @param exercises the exercises of the workout
+     * @return the exercises in columns
      */
-    private ArrayList<String> getFormattedExercises(ArrayList<String> exercises) {
+    private WorkoutColumns toColumns(List<String> exercises) {
 
-    	ArrayList<String> formattedExercises = new ArrayList<>();
+        if (exercises instanceof WorkoutColumns) {
 
-    	for (String exercise : exercises) {
+            return (WorkoutColumns) exercises;
+        }
 
-    		String formattedExercise = exercise.replaceAll("_", " | "); // reformats the exercises to fit "style"
-    		formattedExercises.add(formattedExercise);
-    	}
+        return WorkoutColumns.of(exercises, this.exerciseNames);
+    }
 
-		return formattedExercises;
-	}
+    /**
+     * Method is used to get the exercises of a workout in columns
+     *
+     * @param date the date the workout was logged
+     * @return the exercises of the workout
+     * @throws Exception if workout does not exist
+     */
+    private WorkoutColumns getColumns(String date) throws Exception {
+
+        return this.toColumns(this.workouts.getView(date));
+    }
 
     /* METHODS - UI */
 
@@ -167,7 +194,7 @@ public class Logger {
     public ArrayList<String> getWorkout(String date) throws Exception {
 
         this.checkDateFormat(date);
-        ArrayList<String> formattedExercises = this.getFormattedExercises(this.workouts.get(date));
+        ArrayList<String> formattedExercises = this.getColumns(date).format();
         this.primDate = date;
         return formattedExercises;
     }
@@ -182,7 +209,7 @@ public class Logger {
     public ArrayList<String> getCurrentWorkout() throws Exception {
 
         this.checkDateFormat(this.primDate);
-        ArrayList<String> formattedExercises = this.getFormattedExercises(this.workouts.get(this.primDate));
+        ArrayList<String> formattedExercises = this.getColumns(this.primDate).format();
         return formattedExercises;
     }
 
@@ -211,6 +238,203 @@ public class Logger {
         this.workouts.clearDataUnit(this.primDate);
     }
 
+    /**
+     * Method is used to wait until all changes are saved to file, only needed if logger saves in the background
+     *
+     * @throws IOException if something went wrong while writing to file
+     */
+    public void flush() throws IOException {
+
+        this.workouts.flush();
+    }
+
+    /**
+     * Method is used to save all changes to file and stop saving in the background, should be called when
+     * logger is no longer used
+     *
+     * @throws IOException if something went wrong while writing to file
+     */
+    public void close() throws IOException {
+
+        this.workouts.close();
+    }
+
+    /**
+     * Method is used to get what the workouts have done since logger was opened, e.g. how many bytes were written
+     *
+     * @return the metrics of the workouts, see DataCollection.getMetrics
+     */
+    public MetricsSnapshot getMetrics() {
+
+        return this.workouts.getMetrics();
+    }
+
+    /**
+     * Method is used to replace all exercises of current workout, they are saved to file with one single write
+     *
+     * @param exercises the exercises (name, sets, reps, intensity) that the workout will hold, in order
+     * @throws IOException if something goes wrong while writing to file
+     * @throws Exception if formatting is incorrect, nothing is changed then
+     */
+    public void replaceCurrentWorkout(ArrayList<String> exercises) throws IOException, Exception {
+
+        this.checkDateFormat(this.primDate);
+        for (String exercise : exercises) { // everything is checked before the workout is cleared
+
+            this.checkExerciseFormat(exercise);
+        }
+
+        this.batch(() -> {
+
+            this.workouts.clearDataUnit(this.primDate);
+            for (String exercise : exercises) {
+
+                this.workouts.addTo(this.primDate, exercise);
+            }
+        });
+    }
+
+    /**
+     * Method is used to make several changes that are saved to file with one single write, when all are done
+     *
+     * @param changes the changes, made through the methods of this logger
+     * @throws IOException if something goes wrong while writing to file
+     * @throws Exception if one of the changes fails
+     */
+    public void batch(DataCollection.Batch changes) throws IOException, Exception {
+
+        this.workouts.batch(changes);
+    }
+
+    /**
+     * Method is used to get the dates of all workouts where an exercise was done
+     *
+     * @param exerciseName the name of the exercise, as it is written before the first "_" in the file
+     * @return the dates of the workouts, an empty list if the exercise was never done
+     */
+    public ArrayList<String> getWorkoutDatesWith(String exerciseName) {
+
+        return this.workouts.find(exerciseName);
+    }
+
+    /**
+     * Method is used to get all workouts between two dates, ordered by date
+     *
+     * @param from the first date, included
+     * @param to the last date, included
+     * @return date -> the exercises from the workout that date, empty if there are no workouts between the dates
+     * @throws Exception if formatting is wrong
+     */
+    public LinkedHashMap<String, ArrayList<String>> getWorkoutsBetween(String from, String to) throws Exception {
+
+        this.checkDateFormat(from);
+        this.checkDateFormat(to);
+
+        LinkedHashMap<String, ArrayList<String>> workouts = new LinkedHashMap<>();
+        this.workouts.getBetween(from, to).forEach((date, exercises) -> workouts.put(date, this.toColumns(exercises).format()));
+        return workouts;
+    }
+
+    /**
+     * Method is used to get the number of sets done in a workout
+     *
+     * @param date the date the workout was logged
+     * @return the number of sets of all exercises
+     * @throws Exception if formatting is wrong or if workout does not exist
+     */
+    public int getTotalSets(String date) throws Exception {
+
+        this.checkDateFormat(date);
+        return this.getColumns(date).getTotalSets();
+    }
+
+    /**
+     * Method is used to get the number of reps done in a workout, all sets included
+     *
+     * @param date the date the workout was logged
+     * @return the number of reps of all exercises
+     * @throws Exception if formatting is wrong or if workout does not exist
+     */
+    public int getTotalReps(String date) throws Exception {
+
+        this.checkDateFormat(date);
+        return this.getColumns(date).getTotalReps();
+    }
+
+    /**
+     * Method is used to get the load lifted in a workout, sets times reps times weight of all exercises in kg
+     *
+     * @param date the date the workout was logged
+     * @return the load in kilograms, exercises logged in sec or min are not included
+     * @throws Exception if formatting is wrong or if workout does not exist
+     */
+    public double getTotalLoad(String date) throws Exception {
+
+        this.checkDateFormat(date);
+        return this.getColumns(date).getTotalLoad();
+    }
+
+    /**
+     * Method is used to get the load lifted in an exercise over all workouts, sets times reps times weight
+     *
+     * @param exerciseName the name of the exercise, as it is written before the first "_" in the file
+     * @return the load in kilograms, 0 if the exercise was never done with weights
+     * @throws Exception if a workout with the exercise is removed while it is read
+     */
+    public double getTotalLoadOf(String exerciseName) throws Exception {
+
+        int nameId = this.exerciseNames.find(exerciseName); // not added, so asking for any name takes no memory
+        if (nameId < 0) { // a name that is in no stored workout
+
+            return 0;
+        }
+
+        double total = 0;
+
+        for (String date : this.workouts.find(exerciseName)) {
+
+            total += this.getColumns(date).getTotalLoad(nameId);
+        }
+
+        return total;
+    }
+
+    /**
+     * Method is used to get the date of the last workout on or before a date
+     *
+     * @param date the date
+     * @return the date of the workout, null if there is no workout on or before the date
+     * @throws Exception if formatting is wrong
+     */
+    public String getWorkoutDateOnOrBefore(String date) throws Exception {
+
+        this.checkDateFormat(date);
+        return this.workouts.floorLabel(date);
+    }
+
+    /**
+     * Method is used to get the date of the first workout on or after a date
+     *
+     * @param date the date
+     * @return the date of the workout, null if there is no workout on or after the date
+     * @throws Exception if formatting is wrong
+     */
+    public String getWorkoutDateOnOrAfter(String date) throws Exception {
+
+        this.checkDateFormat(date);
+        return this.workouts.ceilingLabel(date);
+    }
+
+    /**
+     * Method is used to get the dates of all workouts, from the latest to the earliest
+     *
+     * @return the dates of all workouts, empty if there are none
+     */
+    public ArrayList<String> getWorkoutDatesDescending() {
+
+        return this.workouts.getLabelsDescending();
+    }
+
     /**
      * Method is used to check if a workout exists or not
      *
@@ -242,7 +466,7 @@ public class Logger {
      */
 	public ArrayList<String> getCurrentWorkoutRaw() throws Exception {
 
-		return new ArrayList<String>(this.workouts.get(this.primDate));
+		return new ArrayList<String>(this.workouts.getView(this.primDate));
 	}
 
     /**
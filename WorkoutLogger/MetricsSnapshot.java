@@ -0,0 +1,157 @@
+/* This class holds the metrics of a DataCollection as they were at one moment (see CollectionMetrics.snapshot). It
+ * does not change afterwards, so two snapshots can be compared to see what happened in between.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.util.EnumMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MetricsSnapshot {
+
+    private EnumMap<CollectionMetrics.Operation, Long> counts; // operation -> number of times it was made
+    private EnumMap<CollectionMetrics.Operation, long[]> buckets; // operation -> its timed durations per bucket
+    private EnumMap<CollectionMetrics.Operation, Long> totals; // operation -> sum of its durations
+    private EnumMap<CollectionMetrics.Operation, Long> maxes; // operation -> its longest duration
+    private long bytesRead; // number of bytes read from file
+    private long bytesWritten; // number of bytes written to file
+    private long cacheHits; // reads of units that were loaded, with a memory budget
+    private long cacheMisses; // units loaded from file, with a memory budget
+    private long cacheEvictions; // units unloaded to keep within the memory budget
+    private long checkpointFailures; // checkpoints that could not be written
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, a snapshot of the counts and histograms of all operations, the number of bytes read and written and
+    // the counts of the unit cache and of failed checkpoints
+    MetricsSnapshot(EnumMap<CollectionMetrics.Operation, LongAdder> counts,
+                    EnumMap<CollectionMetrics.Operation, LatencyHistogram> histograms, long bytesRead, long bytesWritten,
+                    long cacheHits, long cacheMisses, long cacheEvictions, long checkpointFailures) {
+
+        this.counts = new EnumMap<>(CollectionMetrics.Operation.class);
+        this.buckets = new EnumMap<>(CollectionMetrics.Operation.class);
+        this.totals = new EnumMap<>(CollectionMetrics.Operation.class);
+        this.maxes = new EnumMap<>(CollectionMetrics.Operation.class);
+
+        for (CollectionMetrics.Operation operation : histograms.keySet()) {
+
+            LatencyHistogram histogram = histograms.get(operation);
+            this.counts.put(operation, counts.get(operation).sum());
+            this.buckets.put(operation, histogram.getCounts());
+            this.totals.put(operation, histogram.getTotal());
+            this.maxes.put(operation, histogram.getMax());
+        }
+
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+        this.cacheEvictions = cacheEvictions;
+        this.checkpointFailures = checkpointFailures;
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to get the number of times an operation has been made
+    public long getCount(CollectionMetrics.Operation operation) {
+
+        return this.counts.get(operation);
+    }
+
+    // this method is used to get how long an operation took at most, for a share of all times it was timed
+    // share is between 0 and 1 (0.5 for the median, 0.99 for the 99th percentile), in nanoseconds
+    // the duration is rounded up, by at most 1/8, but never above the longest duration
+    public long getPercentile(CollectionMetrics.Operation operation, double share) {
+
+        return Math.min(LatencyHistogram.percentileOf(this.buckets.get(operation), share), this.getMax(operation));
+    }
+
+    // this method is used to get the longest time an operation took when it was timed, in nanoseconds
+    public long getMax(CollectionMetrics.Operation operation) {
+
+        return this.maxes.get(operation);
+    }
+
+    // this method is used to get the average time an operation took when it was timed, in nanoseconds, 0 if it
+    // has never been timed
+    public long getMean(CollectionMetrics.Operation operation) {
+
+        long timed = 0;
+        for (long bucket : this.buckets.get(operation)) {
+
+            timed += bucket;
+        }
+
+        return timed == 0 ? 0 : this.totals.get(operation) / timed;
+    }
+
+    // this method is used to get the number of times changes have been written to file or journal
+    public long getFlushCount() {
+
+        return this.getCount(CollectionMetrics.Operation.FLUSH);
+    }
+
+    // this method is used to get the number of bytes read from the files of the collection
+    public long getBytesRead() {
+
+        return this.bytesRead;
+    }
+
+    // this method is used to get the number of bytes written to the files of the collection
+    public long getBytesWritten() {
+
+        return this.bytesWritten;
+    }
+
+    // this method is used to get the number of reads of units that were loaded already, with a memory budget
+    public long getCacheHits() {
+
+        return this.cacheHits;
+    }
+
+    // this method is used to get the number of units loaded from file, with a memory budget
+    public long getCacheMisses() {
+
+        return this.cacheMisses;
+    }
+
+    // this method is used to get the number of units unloaded to keep within the memory budget
+    public long getCacheEvictions() {
+
+        return this.cacheEvictions;
+    }
+
+    // this method is used to get the number of checkpoints that could not be written
+    public long getCheckpointFailures() {
+
+        return this.checkpointFailures;
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder sb = new StringBuilder();
+        for (CollectionMetrics.Operation operation : this.counts.keySet()) {
+
+            sb.append(operation.name().toLowerCase()).append(": count=").append(this.getCount(operation))
+              .append(" p50=").append(this.getPercentile(operation, 0.5)).append("ns")
+              .append(" p99=").append(this.getPercentile(operation, 0.99)).append("ns")
+              .append(" max=").append(this.getMax(operation)).append("ns\n");
+        }
+
+        sb.append("bytes: read=").append(this.bytesRead).append(" written=").append(this.bytesWritten);
+
+        if (this.cacheHits + this.cacheMisses > 0) { // only with a memory budget
+
+            sb.append("\ncache: hits=").append(this.cacheHits).append(" misses=").append(this.cacheMisses)
+              .append(" evictions=").append(this.cacheEvictions);
+        }
+
+        if (this.checkpointFailures > 0) {
+
+            sb.append("\ncheckpoint: failures=").append(this.checkpointFailures);
+        }
+
+        return sb.toString();
+    }
+}
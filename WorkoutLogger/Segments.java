@@ -0,0 +1,146 @@
+/* This class is used by DataCollection in segmented mode. The units of a segmented collection are not stored in
+ * one file but spread over several segment files, and a change only rewrites the segment of the changed unit.
+ *
+ * Which segment a unit goes to is decided by its label, either by the first characters of the label (a prefix
+ * of 7 puts all workouts of a month, yyyy-MM, in the same segment) or by the hash of the label (spreads units
+ * evenly over a fixed number of segments). A segment with the key k is stored in the file "<collection>.k".
+ *
+ * The collection file itself becomes a manifest that lists the segments. It starts with the line "DCS" and how
+ * the units are partitioned, followed by one key per line.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+public class Segments {
+
+    private static final String MAGIC = "DCS"; // first characters of every manifest
+    private static final String PREFIX = "prefix:"; // partition by the first characters of the label
+    private static final String HASH = "hash:"; // partition by the hash of the label
+
+    private File manifest; // the collection file, lists all segments
+    private int prefixLength; // number of characters of label that decides segment, 0 if hash is used
+    private int count; // number of segments that hashes are spread over, 0 if prefix is used
+    private ConcurrentSkipListSet<String> keys; // keys of all segments that have a file, sorted
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, makes segments for a collection, partitioned by prefix if prefixLength > 0, else by hash into count
+    public Segments(File manifest, int prefixLength, int count) {
+
+        if ((prefixLength > 0) == (count > 0)) {
+
+            throw new IllegalArgumentException("Segments Are Partitioned Either By Prefix Or By Hash");
+        }
+
+        this.manifest = manifest;
+        this.prefixLength = prefixLength;
+        this.count = count;
+        this.keys = new ConcurrentSkipListSet<>();
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to check if a file is a manifest of a segmented collection
+    // throws exception if something goes wrong while reading file
+    public static boolean isManifest(File f) throws IOException {
+
+        if (f.length() < MAGIC.length() + 1) {
+
+            return false;
+        }
+
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8));
+        String line = br.readLine();
+        br.close();
+
+        return line != null && line.startsWith(MAGIC + "\t");
+    }
+
+    // this method is used to read the manifest of a segmented collection
+    // throws exception if something goes wrong while reading file, or if file is not a manifest
+    public static Segments read(File f) throws IOException {
+
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8));
+        String header = br.readLine();
+        Segments segments;
+
+        try {
+
+            String partition = header.substring(MAGIC.length() + 1);
+
+            if (partition.startsWith(PREFIX)) {
+
+                segments = new Segments(f, Integer.parseInt(partition.substring(PREFIX.length())), 0);
+            }
+            else {
+
+                segments = new Segments(f, 0, Integer.parseInt(partition.substring(HASH.length())));
+            }
+        }
+        catch (RuntimeException exception) { // header is missing or broken
+
+            br.close();
+            throw new IOException("Broken Manifest In Collection: " + f);
+        }
+
+        String line;
+        while ((line = br.readLine()) != null) {
+
+            if (!line.isEmpty()) {
+
+                segments.keys.add(line);
+            }
+        }
+
+        br.close();
+        return segments;
+    }
+
+    // this method is used to write the manifest, with the keys of all segments that have a file
+    // the manifest is replaced in a crash safe way (see AtomicFiles), if isSynced is true it waits until it is on the disk
+    // throws exception if something goes wrong while writing to file
+    public void write(boolean isSynced) throws IOException {
+
+        StringBuilder sb = new StringBuilder(MAGIC).append('\t').append(this.partition()).append('\n');
+        for (String key : this.keys) {
+
+            sb.append(key).append('\n');
+        }
+
+        AtomicFiles.write(this.manifest, sb.toString().getBytes(StandardCharsets.UTF_8), isSynced);
+    }
+
+    // this method is used to describe how units are partitioned, for example "prefix:7" or "hash:16"
+    public String partition() {
+
+        return this.prefixLength > 0 ? PREFIX + this.prefixLength : HASH + this.count;
+    }
+
+    // this method is used to get the key of the segment that a unit with a specific label belongs to
+    public String keyOf(String label) {
+
+        if (this.prefixLength > 0) {
+
+            return label.length() > this.prefixLength ? label.substring(0, this.prefixLength) : label;
+        }
+
+        return Integer.toString(Math.floorMod(label.hashCode(), this.count));
+    }
+
+    // this method is used to get the file a segment is stored in
+    public File fileOf(String key) {
+
+        return new File(this.manifest.getPath() + "." + key);
+    }
+
+    // this method is used to get the keys of all segments that have a file, the set can be changed
+    public Set<String> keys() {
+
+        return this.keys;
+    }
+}
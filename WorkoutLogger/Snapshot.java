@@ -0,0 +1,146 @@
+/* This class is a read-only view of a DataCollection as it was at one point in time (see DataCollection.snapshot).
+ * It is made without copying anything: it shares the list of units and the label indexes with the collection, and
+ * the collection copies them the next time it adds or removes a unit. A unit that is changed keeps the fragments it
+ * had for the snapshot (see DataUnit.preserve).
+ *
+ * Reading a snapshot never waits for changes to the collection, and changes never wait for readers of a snapshot.
+ * A snapshot should be closed when it is no longer used, so that the collection can let go of kept fragments.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class Snapshot implements AutoCloseable {
+
+    private DataCollection collection; // the collection the snapshot was made of
+    private ArrayList<DataUnit> units; // the units when snapshot was made, never changed
+    private LinkedHashMap<String, ArrayList<DataUnit>> index; // label -> units with that label, never changed
+    private TreeMap<String, ArrayList<DataUnit>> sortedIndex; // same as index, sorted by label, never changed
+    private long epoch; // number of the snapshot, units keep their fragments for it by this number
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, used by DataCollection.snapshot, the lists and maps must not be changed after this
+    Snapshot(DataCollection collection, ArrayList<DataUnit> units, LinkedHashMap<String, ArrayList<DataUnit>> index,
+            TreeMap<String, ArrayList<DataUnit>> sortedIndex, long epoch) {
+
+        this.collection = collection;
+        this.units = units;
+        this.index = index;
+        this.sortedIndex = sortedIndex;
+        this.epoch = epoch;
+    }
+
+    /* INTERNAL */
+
+    // this method is used to get all units with a specific label, throws exception if there are none
+    private ArrayList<DataUnit> lookup(String label) throws Exception {
+
+        ArrayList<DataUnit> found = this.index.get(label);
+
+        if (found == null) {
+
+            String msg = "DataUnit With Label \"" + label + "\" Does Not Exist In Collection: " + this.getPath();
+            throw new Exception(msg);
+        }
+
+        return found;
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to get the number in order of the snapshot, a later snapshot has a greater number
+    public long getEpoch() {
+
+        return this.epoch;
+    }
+
+    // this method is used to see where the collection is stored on the computer
+    public String getPath() {
+
+        return this.collection.getPath();
+    }
+
+    // this method is used for getting the size of the collection when the snapshot was made (number of units)
+    public int size() {
+
+        return this.units.size();
+    }
+
+    // this method is used to see if the collection was empty when the snapshot was made
+    public boolean isEmpty() {
+
+        return this.units.isEmpty();
+    }
+
+    // this method is used for checking if a unit with specific label was in collection
+    public boolean contains(String label) {
+
+        return this.index.containsKey(label);
+    }
+
+    // this method is used to get the content of the first found unit with specified label, as it was
+    // the view can't be changed, throws exception if there was no unit with specified label
+    public List<String> get(String label) throws Exception {
+
+        return this.collection.viewAt(this.lookup(label).get(0), this.epoch);
+    }
+
+    // this method is used to get all labels in order, every unit is listed
+    public ArrayList<String> getAllLabels() {
+
+        ArrayList<String> labels = new ArrayList<>(this.units.size());
+        for (DataUnit unit : this.units) {
+
+            labels.add(unit.getLabel());
+        }
+
+        return labels;
+    }
+
+    // this method is used to get the content of the first unit of every label between from and to, both included
+    // labels are sorted, the content is given as views that can't be changed
+    public LinkedHashMap<String, List<String>> getBetween(String from, String to) {
+
+        LinkedHashMap<String, List<String>> found = new LinkedHashMap<>();
+
+        if (from.compareTo(to) <= 0) { // an empty range if from comes after to
+
+            for (ArrayList<DataUnit> units : this.sortedIndex.subMap(from, true, to, true).values()) {
+
+                found.put(units.get(0).getLabel(), this.collection.viewAt(units.get(0), this.epoch));
+            }
+        }
+
+        return found;
+    }
+
+    // this method is used to go through all units in order, the units are read-only
+    public void forEachUnit(Consumer<DataUnit> action) {
+
+        for (DataUnit unit : this.units) {
+
+            action.accept(this.collection.readOnlyAt(unit, this.epoch));
+        }
+    }
+
+    // this method is used to get a stream of all units in order, the units are read-only
+    // a parallel stream splits the units evenly
+    public Stream<DataUnit> stream() {
+
+        return this.units.stream().map(unit -> this.collection.readOnlyAt(unit, this.epoch));
+    }
+
+    @Override
+    // this method is used to tell the collection that the snapshot is no longer used, it must not be read after this
+    public void close() {
+
+        this.collection.release(this.epoch);
+    }
+}
@@ -0,0 +1,26 @@
+/* This enum lists the formats a DataCollection can store its units in.
+ *
+ * TEXT is the original format, where every unit is written as "label {", one indented fragment per line and "}".
+ * It can be read and edited by humans.
+ *
+ * BINARY is a compact format (see BinaryFormat) that is smaller on disk and faster to read and write.
+ *
+ * COMPRESSED stores units like BINARY, but in blocks that are compressed with Deflate (see CompressedFormat). It is
+ * the smallest on disk, but units have to be inflated when they are read and compressed when they are written.
+ *
+ * Where compression pays off was measured with the formats benchmark (see Benchmark), on workouts of three to six
+ * exercises. COMPRESSED files are about 40% smaller than BINARY and 80% smaller than TEXT at every size. A collection
+ * that is read all at once loads in about the same time in every format, so there compression only saves disk, and
+ * saving a change takes three times as long as with BINARY. With lazy loading COMPRESSED loads faster from about
+ * 1000 workouts (half the time of BINARY at 30000), and saves as fast as BINARY at about 30000 workouts and faster
+ * above that (a third of the time at 100000), since fewer bytes are copied from the old file.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+public enum StorageFormat {
+
+    TEXT,
+    BINARY,
+    COMPRESSED
+}
@@ -0,0 +1,274 @@
+/* This class holds the settings a DataCollection is opened with. A collection opened without any options
+ * behaves just like it always has, every change rewrites the whole collection file.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+public class StorageOptions {
+
+    private boolean journaled; // if changes are appended to a journal instead of rewriting the whole file
+    private StorageFormat format; // the format units are stored in
+    private boolean writeBehind; // if changes are saved by a background thread instead of the caller
+    private long maxFlushDelay; // the longest time in milliseconds a change waits before the background thread saves it
+    private boolean synced; // if every write waits until content is on the disk (fsync)
+    private int segmentPrefixLength; // units are segmented by this many characters of their label, 0 if not
+    private int segmentCount; // units are segmented by the hash of their label into this many segments, 0 if not
+    private boolean lazyLoading; // if fragments of a unit are read from file when they are first needed
+    private boolean fragmentIndexed; // if units can be found by the tokens of their fragments (see FragmentIndex)
+    private boolean metricsPublished; // if the metrics of the collection can be read through JMX
+    private boolean checkpointed; // if units are saved to a checkpoint, so that the next start doesn't read the file
+    private long checkpointInterval; // the shortest time in milliseconds between two checkpoints in write behind mode
+    private long memoryBudget; // most bytes loaded units should take, 0 if memory is not bounded
+    private boolean offHeap; // if fragments read from file are stored off the heap
+    private FragmentPacker packer; // what fragments of units are packed with, null if they are kept as they are
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, makes a set of options with default values
+    public StorageOptions() {
+
+        this.journaled = false;
+        this.format = StorageFormat.TEXT;
+        this.writeBehind = false;
+        this.maxFlushDelay = 1000;
+        this.synced = false;
+        this.segmentPrefixLength = 0;
+        this.segmentCount = 0;
+        this.lazyLoading = false;
+        this.fragmentIndexed = false;
+        this.metricsPublished = false;
+        this.checkpointed = false;
+        this.checkpointInterval = 60 * 1000;
+        this.memoryBudget = 0;
+        this.offHeap = false;
+        this.packer = null;
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to choose if changes should be appended to a journal (see Journal)
+    public void setJournaled(boolean journaled) {
+
+        this.journaled = journaled;
+    }
+
+    // this method is used to see if changes are appended to a journal
+    public boolean isJournaled() {
+
+        return this.journaled;
+    }
+
+    // this method is used to choose the format units are stored in, a file in another format is converted when opened
+    public void setFormat(StorageFormat format) {
+
+        this.format = format;
+    }
+
+    // this method is used to see which format units are stored in
+    public StorageFormat getFormat() {
+
+        return this.format;
+    }
+
+    // this method is used to choose if changes should be saved by a background thread (see WriteBehindFlusher)
+    public void setWriteBehind(boolean writeBehind) {
+
+        this.writeBehind = writeBehind;
+    }
+
+    // this method is used to see if changes are saved by a background thread
+    public boolean isWriteBehind() {
+
+        return this.writeBehind;
+    }
+
+    // this method is used to choose the longest time in milliseconds a change waits before it is saved in
+    // write behind mode, all changes made during that time are saved together
+    public void setMaxFlushDelay(long maxFlushDelay) {
+
+        if (maxFlushDelay < 0) {
+
+            throw new IllegalArgumentException("Flush Delay Can Not Be Negative: " + maxFlushDelay);
+        }
+
+        this.maxFlushDelay = maxFlushDelay;
+    }
+
+    // this method is used to see the longest time in milliseconds a change waits before it is saved
+    public long getMaxFlushDelay() {
+
+        return this.maxFlushDelay;
+    }
+
+    // this method is used to choose if every write should wait until content is on the disk (fsync)
+    // slower, but changes survive a power failure once they are saved
+    public void setSynced(boolean synced) {
+
+        this.synced = synced;
+    }
+
+    // this method is used to see if every write waits until content is on the disk
+    public boolean isSynced() {
+
+        return this.synced;
+    }
+
+    // this method is used to segment units by the first characters of their label (see Segments)
+    // 7 puts the workouts of every month (yyyy-MM) in a segment of its own, 0 turns it off
+    public void setSegmentPrefixLength(int segmentPrefixLength) {
+
+        if (segmentPrefixLength < 0) {
+
+            throw new IllegalArgumentException("Prefix Length Can Not Be Negative: " + segmentPrefixLength);
+        }
+
+        this.segmentPrefixLength = segmentPrefixLength;
+        this.segmentCount = 0;
+    }
+
+    // this method is used to see how many characters of a label decide its segment, 0 if it is not used
+    public int getSegmentPrefixLength() {
+
+        return this.segmentPrefixLength;
+    }
+
+    // this method is used to segment units by the hash of their label into a fixed number of segments (see Segments)
+    // 0 turns it off
+    public void setSegmentCount(int segmentCount) {
+
+        if (segmentCount < 0) {
+
+            throw new IllegalArgumentException("Segment Count Can Not Be Negative: " + segmentCount);
+        }
+
+        this.segmentCount = segmentCount;
+        this.segmentPrefixLength = 0;
+    }
+
+    // this method is used to see how many segments units are spread over by hash, 0 if it is not used
+    public int getSegmentCount() {
+
+        return this.segmentCount;
+    }
+
+    // this method is used to see if units are stored in segments
+    public boolean isSegmented() {
+
+        return this.segmentPrefixLength > 0 || this.segmentCount > 0;
+    }
+
+    // this method is used to choose if only the labels of units should be read when collection is opened
+    // the fragments of a unit are then read when they are first needed, using an offset index (see UnitIndex)
+    public void setLazyLoading(boolean lazyLoading) {
+
+        this.lazyLoading = lazyLoading;
+    }
+
+    // this method is used to see if fragments of units are read when they are first needed
+    public boolean isLazyLoading() {
+
+        return this.lazyLoading;
+    }
+
+    // this method is used to choose if units should be indexed by the tokens of their fragments (see FragmentIndex)
+    // all units are read when collection is opened to build the index, also with lazy loading
+    public void setFragmentIndexed(boolean fragmentIndexed) {
+
+        this.fragmentIndexed = fragmentIndexed;
+    }
+
+    // this method is used to see if units are indexed by the tokens of their fragments
+    public boolean isFragmentIndexed() {
+
+        return this.fragmentIndexed;
+    }
+
+    // this method is used to choose if the metrics of the collection should be published through JMX (see
+    // CollectionMetrics), they are published until the collection is closed
+    public void setMetricsPublished(boolean metricsPublished) {
+
+        this.metricsPublished = metricsPublished;
+    }
+
+    // this method is used to see if the metrics of the collection are published through JMX
+    public boolean isMetricsPublished() {
+
+        return this.metricsPublished;
+    }
+
+    // this method is used to choose if all units should be saved to a checkpoint (see Checkpoint) when collection is
+    // closed, and every now and then in write behind mode, the next start then reads the checkpoint instead of the
+    // file if the file has not changed since, can't be used together with lazy loading or segments
+    public void setCheckpointed(boolean checkpointed) {
+
+        this.checkpointed = checkpointed;
+    }
+
+    // this method is used to see if units are saved to a checkpoint
+    public boolean isCheckpointed() {
+
+        return this.checkpointed;
+    }
+
+    // this method is used to choose the shortest time in milliseconds between two checkpoints that are written by
+    // the background thread in write behind mode
+    public void setCheckpointInterval(long checkpointInterval) {
+
+        if (checkpointInterval < 0) {
+
+            throw new IllegalArgumentException("Checkpoint Interval Can Not Be Negative: " + checkpointInterval);
+        }
+
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    // this method is used to see the shortest time in milliseconds between two checkpoints in write behind mode
+    public long getCheckpointInterval() {
+
+        return this.checkpointInterval;
+    }
+
+    // this method is used to choose the most bytes the loaded units of a lazily loaded collection should take, the
+    // units read the longest time ago are unloaded to keep within it (see UnitCache), 0 turns it off
+    public void setMemoryBudget(long memoryBudget) {
+
+        if (memoryBudget < 0) {
+
+            throw new IllegalArgumentException("Memory Budget Can Not Be Negative: " + memoryBudget);
+        }
+
+        this.memoryBudget = memoryBudget;
+    }
+
+    // this method is used to see the most bytes loaded units should take, 0 if memory is not bounded
+    public long getMemoryBudget() {
+
+        return this.memoryBudget;
+    }
+
+    // this method is used to choose if the fragments read from file should be stored off the heap (see
+    // FragmentArena), which the garbage collector doesn't go through, can't be used together with lazy loading
+    public void setOffHeap(boolean offHeap) {
+
+        this.offHeap = offHeap;
+    }
+
+    // this method is used to see if fragments read from file are stored off the heap
+    public boolean isOffHeap() {
+
+        return this.offHeap;
+    }
+
+    // this method is used to choose what the fragments of units are packed with to save memory (see FragmentPacker),
+    // e.g. columns of workouts (see WorkoutColumns), null keeps them as they are, can't be used together with off heap
+    public void setPacker(FragmentPacker packer) {
+
+        this.packer = packer;
+    }
+
+    // this method is used to see what the fragments of units are packed with, null if they are kept as they are
+    public FragmentPacker getPacker() {
+
+        return this.packer;
+    }
+}
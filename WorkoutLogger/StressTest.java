@@ -0,0 +1,375 @@
+/* This class checks that DataCollection loses no change when several threads change it at the same time. It is run
+ * on its own, through main, and needs no other libraries.
+ *
+ * For every mode a collection is made with one unit per label. Writer threads then add fragments to the units
+ * (see DataCollection.addTo), every writer goes through the labels in turn, so that writers both share labels and
+ * use labels of their own. Reader threads read the units meanwhile, and one thread adds and removes units of other
+ * labels, so that changes to units are mixed with changes that lock the whole collection.
+ *
+ * When all threads are done every unit must hold every fragment that was added to it exactly once, and the
+ * fragments of one writer must be in the order the writer added them. The same is checked again after the
+ * collection is closed and opened again, so that nothing was lost on the way to file or journal either. A reader
+ * also checks that a unit never loses fragments while the writers run.
+ *
+ * Arguments are given as key=value, all of them can be left out:
+ *  writers=8 readers=2 labels=8 ops=500       threads, labels and fragments every writer adds
+ *  modes=immediate,journaled,writeBehind,segmented,batched,lazy
+ *                                             modes to run, batched makes every writer add its fragments in batches
+ *  dir=stress                                 where collections are written, removed when done
+ *
+ * It exits with status 1 if a change was lost in any mode, e.g. java StressTest writers=16 modes=journaled
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class StressTest {
+
+    private static final String[] MODES = {"immediate", "journaled", "writeBehind", "segmented", "batched", "lazy"};
+    private static final int BATCH_SIZE = 10; // fragments a writer adds in every batch, in batched mode
+
+    private int writers; // threads that add fragments
+    private int readers; // threads that read units while fragments are added
+    private int labelCount; // number of units fragments are added to
+    private int ops; // fragments every writer adds
+    private List<String> modes; // modes to run
+    private File dir; // where collections are written
+    private ArrayList<String> failures; // every lost change that was found, in all modes
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, a stress test set up by arguments given as key=value (see top of file)
+    public StressTest(String[] args) {
+
+        HashMap<String, String> settings = new HashMap<>();
+        for (String arg : args) {
+
+            int split = arg.indexOf('=');
+            if (split < 0) {
+
+                throw new IllegalArgumentException("Arguments Are Given As key=value: " + arg);
+            }
+
+            settings.put(arg.substring(0, split), arg.substring(split + 1));
+        }
+
+        this.writers = Integer.parseInt(settings.getOrDefault("writers", "8"));
+        this.readers = Integer.parseInt(settings.getOrDefault("readers", "2"));
+        this.labelCount = Integer.parseInt(settings.getOrDefault("labels", "8"));
+        this.ops = Integer.parseInt(settings.getOrDefault("ops", "500"));
+        this.modes = Arrays.asList(settings.getOrDefault("modes", String.join(",", MODES)).split(","));
+        this.dir = new File(settings.getOrDefault("dir", "stress"));
+        this.failures = new ArrayList<>();
+    }
+
+    /* INTERNAL */
+
+    // this method is used to get the options a collection is opened with in a mode
+    private static StorageOptions optionsOf(String mode) {
+
+        StorageOptions options = new StorageOptions();
+
+        switch (mode) {
+
+            case "immediate":
+            case "batched":
+                break;
+            case "journaled":
+                options.setJournaled(true);
+                break;
+            case "writeBehind":
+                options.setWriteBehind(true);
+                options.setMaxFlushDelay(5);
+                break;
+            case "segmented":
+                options.setSegmentCount(4);
+                break;
+            case "lazy":
+                options.setLazyLoading(true);
+                options.setMemoryBudget(4096);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown Mode: " + mode);
+        }
+
+        return options;
+    }
+
+    // this method is used to get the label of unit number i
+    private static String labelOf(int i) {
+
+        return "L" + i;
+    }
+
+    // this method is used to remove a directory and everything in it
+    private static void delete(File f) {
+
+        File[] children = f.listFiles();
+        if (children != null) {
+
+            for (File child : children) {
+
+                delete(child);
+            }
+        }
+
+        f.delete();
+    }
+
+    // this method is used to add the fragments of writer number w, one per operation, to the units in turn
+    // throws exception if a change fails
+    private void write(DataCollection collection, int w, boolean isBatched) throws IOException, Exception {
+
+        for (int i = 0; i < this.ops; i += isBatched ? BATCH_SIZE : 1) {
+
+            int first = i;
+            int end = isBatched ? Math.min(this.ops, i + BATCH_SIZE) : i + 1;
+
+            if (isBatched) {
+
+                collection.batch(() -> this.add(collection, w, first, end));
+            }
+            else {
+
+                this.add(collection, w, first, end);
+            }
+        }
+    }
+
+    // this method is used to add the fragments of writer w with numbers from first to end (not included)
+    // throws exception if a change fails
+    private void add(DataCollection collection, int w, int first, int end) throws IOException, Exception {
+
+        for (int i = first; i < end; i++) {
+
+            collection.addTo(labelOf((w + i) % this.labelCount), "w" + w + "_" + i);
+        }
+    }
+
+    // this method is used to read the units over and over until done is set, a unit must never lose fragments
+    // throws exception if a read fails
+    private void read(DataCollection collection, AtomicBoolean done, String mode) throws Exception {
+
+        int[] sizes = new int[this.labelCount];
+
+        while (!done.get()) {
+
+            for (int i = 0; i < this.labelCount; i++) {
+
+                int size = collection.getView(labelOf(i)).size();
+                if (size < sizes[i]) {
+
+                    this.fail(mode + ": " + labelOf(i) + " Went From " + sizes[i] + " To " + size + " Fragments");
+                }
+
+                sizes[i] = Math.max(sizes[i], size);
+            }
+        }
+    }
+
+    // this method is used to add and remove units of other labels until done is set
+    // throws exception if a change fails
+    private void churn(DataCollection collection, AtomicBoolean done) throws IOException, Exception {
+
+        for (int i = 0; !done.get(); i++) {
+
+            collection.add("X" + i, "churn_" + i);
+            if (i > 0) {
+
+                collection.remove("X" + (i - 1));
+            }
+        }
+    }
+
+    // this method is used to note a lost change
+    private synchronized void fail(String failure) {
+
+        this.failures.add(failure);
+    }
+
+    // this method is used to check that every unit holds every fragment added to it once, in the order of its writer
+    // where tells if the units are checked in memory or after the collection was opened again
+    private void check(DataCollection collection, String mode, String where) throws Exception {
+
+        int before = this.failures.size();
+
+        for (int l = 0; l < this.labelCount; l++) {
+
+            List<String> fragments = collection.getView(labelOf(l));
+            int[] last = new int[this.writers]; // number of the last fragment of every writer, -1 if none
+            Arrays.fill(last, -1);
+            int count = 0;
+
+            for (String fragment : fragments) {
+
+                if (!fragment.startsWith("w")) { // the fragment the unit was made with
+
+                    continue;
+                }
+
+                String[] parts = fragment.substring(1).split("_");
+                int w = Integer.parseInt(parts[0]);
+                int i = Integer.parseInt(parts[1]);
+
+                if (i <= last[w]) {
+
+                    this.fail(mode + " (" + where + "): " + fragment + " Of " + labelOf(l) + " Is Out Of Order");
+                }
+
+                last[w] = i;
+                count++;
+            }
+
+            int expected = 0;
+            for (int w = 0; w < this.writers; w++) {
+
+                for (int i = 0; i < this.ops; i++) {
+
+                    expected += (w + i) % this.labelCount == l ? 1 : 0;
+                }
+            }
+
+            if (count != expected) {
+
+                this.fail(mode + " (" + where + "): " + labelOf(l) + " Has " + count + " Of " + expected + " Fragments");
+            }
+        }
+
+        System.out.println(mode + " (" + where + "): " + (this.failures.size() == before ? "ok" : "CHANGES LOST"));
+    }
+
+    // this method is used to run the stress test in one mode
+    // throws exception if something goes wrong while writing to file, or if a thread fails
+    private void run(String mode) throws IOException, Exception {
+
+        File target = new File(this.dir, mode);
+        delete(target);
+        target.mkdirs();
+        String path = new File(target, "units.txt").getPath();
+        StorageOptions options = optionsOf(mode);
+
+        DataCollection collection = new DataCollection(path, options);
+        collection.batch(() -> {
+
+            for (int i = 0; i < this.labelCount; i++) {
+
+                collection.add(labelOf(i), "start");
+            }
+        });
+
+        AtomicBoolean done = new AtomicBoolean();
+        ArrayList<Throwable> errors = new ArrayList<>();
+        ArrayList<Thread> writing = new ArrayList<>();
+        ArrayList<Thread> others = new ArrayList<>();
+
+        for (int w = 0; w < this.writers; w++) {
+
+            int writer = w;
+            writing.add(new Thread(() -> this.guard(errors, () -> this.write(collection, writer, mode.equals("batched")))));
+        }
+
+        for (int r = 0; r < this.readers; r++) {
+
+            others.add(new Thread(() -> this.guard(errors, () -> this.read(collection, done, mode))));
+        }
+
+        others.add(new Thread(() -> this.guard(errors, () -> this.churn(collection, done))));
+
+        long start = System.nanoTime();
+        for (Thread thread : writing) {
+
+            thread.start();
+        }
+        for (Thread thread : others) {
+
+            thread.start();
+        }
+        for (Thread thread : writing) {
+
+            thread.join();
+        }
+
+        done.set(true);
+        for (Thread thread : others) {
+
+            thread.join();
+        }
+
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        for (Throwable error : errors) {
+
+            this.fail(mode + ": " + error);
+        }
+
+        this.check(collection, mode, "memory, " + elapsed + " ms");
+        collection.close();
+
+        DataCollection reopened = new DataCollection(path, options);
+        this.check(reopened, mode, "reopened");
+        reopened.close();
+        delete(target);
+    }
+
+    // this method is used to run a part of the test on a thread, an exception is kept so that the test can fail
+    private void guard(List<Throwable> errors, Part part) {
+
+        try {
+
+            part.run();
+        }
+        catch (Throwable error) {
+
+            synchronized (errors) {
+
+                errors.add(error);
+            }
+        }
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to run the stress test in all modes, returns true if no change was lost
+    // throws exception if something goes wrong while writing to file
+    public boolean run() throws IOException, Exception {
+
+        System.out.println("writers=" + this.writers + " readers=" + this.readers + " labels=" + this.labelCount
+                + " ops=" + this.ops);
+
+        try {
+
+            for (String mode : this.modes) {
+
+                this.run(mode.trim());
+            }
+        }
+        finally {
+
+            delete(this.dir);
+        }
+
+        for (String failure : this.failures) {
+
+            System.out.println("LOST: " + failure);
+        }
+
+        return this.failures.isEmpty();
+    }
+
+    // this method is used to run the stress test from the command line, see top of file for arguments
+    public static void main(String[] args) throws Exception {
+
+        if (!new StressTest(args).run()) {
+
+            System.exit(1);
+        }
+    }
+
+    // this interface is a part of the test that runs on a thread of its own
+    private interface Part {
+
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,150 @@
+/* This class is used by DataCollection to write units in the text format, the format DataCollection has always
+ * used (see DataLoader for how it is read). Units are written straight into a byte buffer that is passed on to the
+ * stream when it is full, so no String is made for a unit or for the whole collection.
+ *
+ * The buffers are reused, every thread keeps its own set of them between writes.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+
+public class TextFormat {
+
+    private static final ThreadLocal<TextFormat> POOL = ThreadLocal.withInitial(TextFormat::new); // buffers per thread
+    private static final int BUFFER_SIZE = 64 * 1024; // size of the byte buffer
+    private static final int MAX_KEPT_SIZE = 1024 * 1024; // text buffers bigger than this are not kept between writes
+
+    private CharsetEncoder encoder; // turns text into bytes, same charset as FileWriter
+    private StringBuilder text; // the text of one unit
+    private char[] chars; // the text of one unit, copied out so that it can be encoded quickly
+    private ByteBuffer bytes; // encoded text that has not been passed on to the stream
+    private long written; // number of bytes passed on to the stream during the current write
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, used by POOL, makes the buffers of one thread
+    private TextFormat() {
+
+        this.encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE); // same as FileWriter and String.getBytes
+        this.text = new StringBuilder(256);
+        this.chars = new char[256];
+        this.bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    /* INTERNAL */
+
+    // this method is used to get the number of bytes written so far, also those that are still in the buffer
+    private long position() {
+
+        return this.written + this.bytes.position();
+    }
+
+    // this method is used to pass the buffered bytes on to a stream
+    private void drain(OutputStream out) throws IOException {
+
+        out.write(this.bytes.array(), 0, this.bytes.position());
+        this.written += this.bytes.position();
+        this.bytes.clear();
+    }
+
+    // this method is used to encode the text of a unit to the buffer, the buffer is drained every time it is full
+    private void encode(OutputStream out, StringBuilder sb) throws IOException {
+
+        if (this.chars.length < sb.length()) {
+
+            this.chars = new char[Math.max(sb.length(), this.chars.length * 2)];
+        }
+
+        sb.getChars(0, sb.length(), this.chars, 0);
+        CharBuffer in = CharBuffer.wrap(this.chars, 0, sb.length());
+        this.encoder.reset();
+
+        while (this.encoder.encode(in, this.bytes, true).isOverflow()) {
+
+            this.drain(out);
+        }
+
+        while (this.encoder.flush(this.bytes).isOverflow()) {
+
+            this.drain(out);
+        }
+    }
+
+    // this method is used to write all units to a stream, see write
+    private long[] writeUnits(OutputStream out, ArrayList<DataUnit> units) throws IOException {
+
+        long[] positions = new long[units.size() * 3];
+        this.written = 0;
+        this.bytes.clear();
+
+        for (int i = 0; i < units.size(); i++) { // writes all data units, separated by newlines
+
+            DataUnit unit = units.get(i);
+            FragmentSource source = unit.getSource();
+            this.text.setLength(0);
+
+            if (i > 0) {
+
+                this.text.append('\n');
+                this.encode(out, this.text);
+                this.text.setLength(0);
+            }
+
+            long start = this.position();
+            positions[i * 3 + 2] = unit.getVersion(); // taken first, so a later change makes the position outdated
+
+            boolean isStored = source != null && source.getFormat() == StorageFormat.TEXT;
+            if (!unit.isLoaded() && isStored) { // copied as it is, without loading it
+
+                this.drain(out);
+                this.written += source.copyTo(out);
+            }
+            else {
+
+                unit.appendTo(this.text);
+                this.encode(out, this.text);
+            }
+
+            positions[i * 3] = start;
+            positions[i * 3 + 1] = this.position() - start;
+        }
+
+        this.drain(out);
+        out.flush();
+        return positions;
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to write all units in the text format to a stream, the stream is flushed but not closed
+    // a unit that is not loaded and is stored as text is copied as it is, without loading it
+    // returns the start, length and version of every unit in the stream (see DataCollection.writeUnits)
+    // throws exception if something goes wrong while writing to stream
+    public static long[] write(OutputStream out, ArrayList<DataUnit> units) throws IOException {
+
+        TextFormat format = POOL.get();
+
+        try {
+
+            return format.writeUnits(out, units);
+        }
+        finally {
+
+            if (format.text.capacity() > MAX_KEPT_SIZE || format.chars.length > MAX_KEPT_SIZE) { // a huge unit was written
+
+                format.text = new StringBuilder(256);
+                format.chars = new char[256];
+            }
+        }
+    }
+}
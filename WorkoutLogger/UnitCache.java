@@ -0,0 +1,142 @@
+/* This class is used by DataCollection to keep the memory that lazily loaded units take below a budget. It knows
+ * every unit that has its fragments in memory, and how many bytes they take (an estimate), in order of when the
+ * unit was last read. When loaded units take more than the budget, the units that were read the longest time ago
+ * are unloaded (evicted) until they fit again, an evicted unit loads its fragments from file the next time it is read.
+ *
+ * Only units that are stored as they are (clean units) can be evicted. A unit that has changed since it was last
+ * written (dirty) is kept until the change is written back to file, which happens right away, or in write behind mode
+ * when the flusher runs, and is evicted after that.
+ *
+ * Units are locked to unload them, so evict must not be called while a unit is locked. Units themselves only tell
+ * the cache when they are read, loaded or changed, and never evict other units.
+ *
+ * Reads that find a unit loaded (hits), loads from file (misses) and evictions are counted in the metrics of the
+ * collection (see CollectionMetrics).
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class UnitCache {
+
+    private static final long UNIT_SIZE = 64; // estimated bytes of a unit and its list, without its fragments
+    private static final long FRAGMENT_SIZE = 56; // estimated bytes of a fragment besides its characters
+
+    private final long budget; // most bytes loaded units should take
+    private final CollectionMetrics metrics; // hits, misses and evictions are counted in this
+    private final LinkedHashMap<DataUnit, Long> units; // loaded unit -> its bytes, least recently read first
+    private volatile long bytes; // bytes all loaded units take
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, makes an empty cache where loaded units should take at most budget bytes
+    public UnitCache(long budget, CollectionMetrics metrics) {
+
+        this.budget = budget;
+        this.metrics = metrics;
+        this.units = new LinkedHashMap<>(16, 0.75f, true); // ordered by access, not by insertion
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to estimate how many bytes a unit with a list of fragments takes in memory
+    public static long sizeOf(List<String> fragments) {
+
+        long size = UNIT_SIZE;
+        for (String fragment : fragments) {
+
+            size += FRAGMENT_SIZE + fragment.length();
+        }
+
+        return size;
+    }
+
+    // this method is used by a loaded unit when it is read, it becomes the most recently read unit
+    public synchronized void touch(DataUnit unit) {
+
+        this.metrics.hit();
+        this.units.get(unit); // moves it to the end of the access order
+    }
+
+    // this method is used by a unit when its fragments have been loaded from file
+    public void loaded(DataUnit unit, long size) {
+
+        this.metrics.missed();
+        this.resize(unit, size);
+    }
+
+    // this method is used by a loaded unit when its fragments have changed, or when it is added to the cache
+    public synchronized void resize(DataUnit unit, long size) {
+
+        Long old = this.units.put(unit, size);
+        this.bytes += size - (old == null ? 0 : old);
+    }
+
+    // this method is used to stop keeping track of a unit, when it is unloaded or removed from its collection
+    public synchronized void forget(DataUnit unit) {
+
+        Long old = this.units.remove(unit);
+        this.bytes -= old == null ? 0 : old;
+    }
+
+    // this method is used to unload the least recently read clean units until loaded units fit in the budget
+    // dirty units are skipped, they are moved to the end of the order so they are not tried again right away
+    // must not be called while a unit is locked
+    public void evict() {
+
+        if (this.bytes <= this.budget) { // read without locking, evict is called after almost every read
+
+            return;
+        }
+
+        ArrayList<DataUnit> victims = new ArrayList<>();
+
+        synchronized (this) { // victims are picked while locked, but unloaded after, as units must not wait for the cache
+
+            long left = this.bytes;
+            Iterator<Map.Entry<DataUnit, Long>> entries = this.units.entrySet().iterator();
+
+            while (left > this.budget && entries.hasNext()) {
+
+                Map.Entry<DataUnit, Long> entry = entries.next();
+                victims.add(entry.getKey());
+                left -= entry.getValue();
+            }
+        }
+
+        long evicted = 0;
+        for (DataUnit victim : victims) {
+
+            if (victim.unload()) { // the unit is forgotten by the cache while it is locked
+
+                evicted++;
+            }
+            else {
+
+                synchronized (this) {
+
+                    this.units.get(victim); // dirty, tried again after all other units
+                }
+            }
+        }
+
+        this.metrics.evicted(evicted);
+    }
+
+    // this method is used to get the estimated number of bytes all loaded units take
+    public long getBytes() {
+
+        return this.bytes;
+    }
+
+    // this method is used to get the most bytes loaded units should take
+    public long getBudget() {
+
+        return this.budget;
+    }
+}
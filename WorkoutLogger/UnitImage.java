@@ -0,0 +1,46 @@
+/* This class is used by DataCollection to hold units that have been written to memory, in the format of the
+ * collection, but not yet to a file. It also knows where every unit is in the written bytes, so that units can be
+ * told where they are stored once the bytes have been written to a file.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+
+public class UnitImage {
+
+    private ByteArrayOutputStream bytes; // the written units
+    private ArrayList<DataUnit> units; // the units, in the order they were written
+    private long[] positions; // start, length and version of every unit (see DataCollection.writeUnits)
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, holds units that have been written to bytes, at positions
+    public UnitImage(ByteArrayOutputStream bytes, ArrayList<DataUnit> units, long[] positions) {
+
+        this.bytes = bytes;
+        this.units = units;
+        this.positions = positions;
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to get the written units
+    public ByteArrayOutputStream getBytes() {
+
+        return this.bytes;
+    }
+
+    // this method is used to get the units, in the order they were written
+    public ArrayList<DataUnit> getUnits() {
+
+        return this.units;
+    }
+
+    // this method is used to get the start, length and version of every unit, three numbers per unit
+    public long[] getPositions() {
+
+        return this.positions;
+    }
+}
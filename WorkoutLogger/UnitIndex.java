@@ -0,0 +1,118 @@
+/* This class is used by DataCollection when units are loaded lazily. It reads and writes the offset index of a
+ * collection file, a sidecar file "<collection>.idx" that holds the label of every unit together with where the
+ * unit starts in the collection file and how many bytes it takes. With the index a collection can be opened by
+ * reading only the labels, the fragments of a unit are read when they are first needed (see FileFragmentSource).
+ *
+ * The index also holds the length and modification time of the collection file it was made for. If the collection
+ * file has changed since then the index is outdated and is not used.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.*;
+import java.util.ArrayList;
+
+public class UnitIndex {
+
+    private static final int MAGIC = 0x44434932; // "DCI2", first bytes of every index file
+
+    /* INTERNAL */
+
+    // this method is used to get the index file of a collection file
+    private static File fileOf(File f) {
+
+        return new File(f.getPath() + ".idx");
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to read the index of a collection file and make a lazy unit for every unit in it
+    // fragments of the units are interned in dictionary when they are loaded (see FragmentDictionary), and the index
+    // and later loads are counted in metrics
+    // returns null if there is no index, or if it is outdated or broken
+    public static ArrayList<DataUnit> read(File f, FragmentDictionary dictionary, CollectionMetrics metrics) {
+
+        File indexFile = fileOf(f);
+
+        if (!indexFile.exists()) {
+
+            return null;
+        }
+
+        try {
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 64 * 1024));
+
+            try {
+
+                if (in.readInt() != MAGIC || in.readLong() != f.length() || in.readLong() != f.lastModified()) {
+
+                    return null;
+                }
+
+                StorageFormat format = StorageFormat.values()[in.readByte()];
+                int count = in.readInt();
+                String[] labels = new String[count];
+                long[] positions = new long[count * 3];
+
+                for (int i = 0; i < count; i++) {
+
+                    labels[i] = in.readUTF();
+                    positions[i * 3] = in.readLong();
+                    positions[i * 3 + 1] = in.readInt();
+                }
+
+                ArrayList<FragmentSource> sources = FileFragmentSource.sourcesOf(f, positions, count, format, dictionary,
+                        metrics);
+                ArrayList<DataUnit> units = new ArrayList<>(count);
+
+                for (int i = 0; i < count; i++) {
+
+                    units.add(DataUnit.lazy(labels[i], sources.get(i)));
+                }
+
+                metrics.read(indexFile.length());
+                return units;
+            }
+            finally {
+
+                in.close();
+            }
+        }
+        catch (IOException | RuntimeException exception) { // broken index, units are read from collection file instead
+
+            return null;
+        }
+    }
+
+    // this method is used to write the index of a collection file, the file must have been written already
+    // positions holds the start and length of every unit, three numbers per unit (see DataCollection.writeUnits)
+    // returns the number of bytes written, throws exception if something goes wrong while writing to file
+    public static long write(File f, ArrayList<DataUnit> units, long[] positions, StorageFormat format) throws IOException {
+
+        File indexFile = fileOf(f);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile), 64 * 1024));
+
+        out.writeInt(MAGIC);
+        out.writeLong(f.length());
+        out.writeLong(f.lastModified());
+        out.writeByte(format.ordinal());
+        out.writeInt(units.size());
+
+        for (int i = 0; i < units.size(); i++) {
+
+            out.writeUTF(units.get(i).getLabel());
+            out.writeLong(positions[i * 3]);
+            out.writeInt((int) positions[i * 3 + 1]);
+        }
+
+        out.close(); // not forced to the disk, a broken or outdated index is not used and is made again
+        return out.size();
+    }
+
+    // this method is used to remove the index of a collection file, used when it would become outdated
+    public static void delete(File f) {
+
+        fileOf(f).delete();
+    }
+}
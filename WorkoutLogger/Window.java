@@ -60,10 +60,42 @@ public class Window extends JFrame implements ActionListener {
         this.exerciseButtons = new ArrayList<>();
         this.isDisplayingWorkout = false;
         this.indexOfClickedExerciseButton = -1;
+
+        // workouts are saved in the background, so the last changes are saved when window is closed
+        this.addWindowListener(new WindowAdapter() {
+
+            public void windowClosing(WindowEvent evt) {
+
+                Window.this.closeLogger();
+            }
+        });
 	}
 
 	/* METHODS - internal */
 
+	/**
+	 * Method is used to save the last changes and stop the logger, called when window is closed
+	 *
+	 */
+	private void closeLogger() {
+
+		if (this.workoutLogger == null) { // logger could not be set up
+
+			return;
+		}
+
+		try {
+
+			this.workoutLogger.close();
+		}
+		catch (IOException exception) {
+
+            JOptionPane.showMessageDialog(Window.this,
+            "A PROBLEM HAS OCCURED IN FILE:\n" + exception.getMessage() + "\nTHE LAST CHANGES MIGHT NOT HAVE BEEN SAVED",
+            "ERROR", JOptionPane.ERROR_MESSAGE);
+		}
+	}
+
 	/**
 	 * Method sets upp window, instantiates and adds all starting components to view
 	 *
@@ -75,7 +107,13 @@ public class Window extends JFrame implements ActionListener {
         try {
 
             // following code generates and add the components to window
-            this.workoutLogger = new Logger(filePath);
+            // changes are saved by a background thread, so writing to file doesn't make the window freeze
+            StorageOptions options = new StorageOptions();
+            options.setWriteBehind(true);
+            options.setMaxFlushDelay(500);
+            options.setLazyLoading(true); // only the workout that is shown is read from file
+
+            this.workoutLogger = new Logger(filePath, options);
             this.makeComponents();
             this.addComponentsToView();
         }
@@ -438,22 +476,10 @@ public class Window extends JFrame implements ActionListener {
 				String formattedExercise = this.formatExercise();
 				ArrayList<String> exercises = this.workoutLogger.getCurrentWorkoutRaw();
 
-                // erase every exercise from the workout
-				this.workoutLogger.clearCurrentWorkout();
-
-                // following code re-adds exercises to workout, but the exercise with the
-                // same index as the argument is replaced with exercise made of data from exercise input fields
-				for (int i = 0; i < exercises.size(); i++) {
-
-					if (i == index) {
-
-						this.workoutLogger.addExercise(formattedExercise);
-					}
-					else {
-
-						this.workoutLogger.addExercise(exercises.get(i));
-					}
-				}
+                // the exercise with the same index as the argument is replaced with exercise made of data from
+                // exercise input fields, then the workout is saved with all exercises at once
+				exercises.set(index, formattedExercise);
+				this.workoutLogger.replaceCurrentWorkout(exercises);
 				
 				// display the edited workout
 	            this.displaySearchedWorkout(this.workoutLogger.getCurrentDate());
@@ -467,14 +493,8 @@ public class Window extends JFrame implements ActionListener {
 				ArrayList<String> exercises = this.workoutLogger.getCurrentWorkoutRaw();
 				exercises.remove(this.indexOfClickedExerciseButton);
 
-                // erase all exercises from current workout
-				this.workoutLogger.clearCurrentWorkout();
-
-                // re-add exercises to current workout
-				for (String exercise : exercises) {
-
-					this.workoutLogger.addExercise(exercise);
-				}
+                // save the remaining exercises to current workout, all at once
+				this.workoutLogger.replaceCurrentWorkout(exercises);
 				
 				// display the edited workout
 	            this.displaySearchedWorkout(this.workoutLogger.getCurrentDate());
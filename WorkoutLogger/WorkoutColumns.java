@@ -0,0 +1,443 @@
+/* Class holds the exercises of one workout in columns, one array of primitives per part of an exercise (name,
+ * sets, reps, intensity and unit), instead of one string per exercise. It is the form workouts are stored in by a
+ * logger (see Packer), sums of sets, reps and load are then made without parsing any strings, and an exercise is
+ * only turned into a string when it is read. The columns can't be changed once they are made.
+ *
+ * Names are stored as ids of a dictionary that is shared by all workouts of a logger (see FragmentDictionary), so
+ * two exercises have the same name if they have the same id.
+ *
+ * An exercise that can not be split into its parts, or that would not be written the same way once it is split
+ * (e.g. "80.50kg" would become "80.5kg"), is kept as it is, so nothing is ever lost.
+ *
+ * @qpeano [created: 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+public class WorkoutColumns extends AbstractList<String> implements RandomAccess {
+
+    /* FIELDS */
+
+    private static final int RAW = -1; // name id of an exercise that is kept as it is
+
+    private FragmentDictionary names; // names of exercises, shared by all workouts
+    private int[] nameIds; // id of the name of every exercise, RAW if it is kept as it is
+    private int[] sets; // number of sets of every exercise
+    private int[] reps; // number of reps per set of every exercise
+    private float[] intensities; // weight or time of every exercise
+    private byte[] units; // unit of the intensity of every exercise, see ExerciseUnit
+    private String[] raw; // exercises that are kept as they are, null until there is one
+    private int size; // number of exercises
+
+    /* METHODS - constructor */
+
+    /**
+     * Constructor
+     *
+     * @param names the dictionary that names of exercises are stored in
+     * @param capacity the number of exercises there is room for before the columns grow
+     */
+    private WorkoutColumns(FragmentDictionary names, int capacity) {
+
+        this.names = names;
+        this.nameIds = new int[capacity];
+        this.sets = new int[capacity];
+        this.reps = new int[capacity];
+        this.intensities = new float[capacity];
+        this.units = new byte[capacity];
+    }
+
+    /* METHODS - internal */
+
+    /**
+     * Method is used to make room for one more exercise
+     */
+    private void grow() {
+
+        if (this.size == this.nameIds.length) {
+
+            int capacity = Math.max(4, this.size * 2);
+            this.nameIds = Arrays.copyOf(this.nameIds, capacity);
+            this.sets = Arrays.copyOf(this.sets, capacity);
+            this.reps = Arrays.copyOf(this.reps, capacity);
+            this.intensities = Arrays.copyOf(this.intensities, capacity);
+            this.units = Arrays.copyOf(this.units, capacity);
+            this.raw = this.raw == null ? null : Arrays.copyOf(this.raw, capacity);
+        }
+    }
+
+    /**
+     * Method is used to check if a part of an exercise only consists of digits
+     *
+     * @param part the part
+     * @param isDecimal if the part may also hold dots
+     * @return true if it does, false if it is empty or holds anything else
+     */
+    private static boolean isNumber(String part, boolean isDecimal) {
+
+        for (int i = 0; i < part.length(); i++) {
+
+            char c = part.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(isDecimal && c == '.')) {
+
+                return false;
+            }
+        }
+
+        return !part.isEmpty();
+    }
+
+    /**
+     * Method is used to write an intensity the way it is logged, without decimals if it is a whole number
+     *
+     * @param intensity the intensity
+     * @return the intensity as it is logged
+     */
+    private static String formatIntensity(float intensity) {
+
+        if (intensity == (long) intensity) {
+
+            return Long.toString((long) intensity);
+        }
+
+        return Float.toString(intensity);
+    }
+
+    /**
+     * Method is used to write an exercise with its parts separated by a separator
+     *
+     * @param index the index of the exercise
+     * @param separator what the parts are separated by
+     * @return the exercise
+     */
+    private String join(int index, String separator) {
+
+        return this.getName(index) + separator + this.sets[index] + separator + this.reps[index] + separator
+                + formatIntensity(this.intensities[index]) + this.getUnit(index).getSuffix();
+    }
+
+    /**
+     * Method is used to keep an exercise as it is, when it can not be split into its parts
+     *
+     * @param exercise the exercise
+     */
+    private void addRaw(String exercise) {
+
+        if (this.raw == null) {
+
+            this.raw = new String[this.nameIds.length];
+        }
+
+        this.nameIds[this.size] = RAW;
+        this.raw[this.size] = exercise;
+        this.size++;
+    }
+
+    /**
+     * Method is used to add an exercise, it is split into its parts if it can be
+     *
+     * @param exercise the exercise, as it is logged (name_sets_reps_intensity)
+     */
+    private void append(String exercise) {
+
+        this.grow();
+
+        String[] parts = exercise.split("_", -1);
+        ExerciseUnit unit = parts.length == 4 ? ExerciseUnit.of(parts[3]) : null;
+
+        if (unit == null || parts[0].isEmpty() || !isNumber(parts[1], false) || !isNumber(parts[2], false)) {
+
+            this.addRaw(exercise);
+            return;
+        }
+
+        String intensity = parts[3].substring(0, parts[3].length() - unit.getSuffix().length());
+
+        if (!isNumber(intensity, true)) {
+
+            this.addRaw(exercise);
+            return;
+        }
+
+        try {
+
+            this.nameIds[this.size] = this.names.idOf(parts[0]);
+            this.sets[this.size] = Integer.parseInt(parts[1]);
+            this.reps[this.size] = Integer.parseInt(parts[2]);
+            this.intensities[this.size] = Float.parseFloat(intensity);
+            this.units[this.size] = (byte) unit.ordinal();
+        }
+        catch (NumberFormatException exception) { // too large, or more than one dot
+
+            this.addRaw(exercise);
+            return;
+        }
+
+        if (!this.join(this.size, "_").equals(exercise)) { // would not be written the same way again
+
+            this.addRaw(exercise);
+            return;
+        }
+
+        this.size++;
+    }
+
+    /* METHODS - UI */
+
+    /**
+     * Method is used to make the columns of a workout
+     *
+     * @param exercises the exercises of the workout, as they are logged (name_sets_reps_intensity)
+     * @param names the dictionary that names of exercises are stored in
+     * @return the columns
+     */
+    public static WorkoutColumns of(List<String> exercises, FragmentDictionary names) {
+
+        WorkoutColumns columns = new WorkoutColumns(names, exercises.size());
+        for (String exercise : exercises) {
+
+            columns.append(exercise);
+        }
+
+        return columns;
+    }
+
+    /**
+     * Method is used to get the number of exercises
+     *
+     * @return the number of exercises
+     */
+    @Override
+    public int size() {
+
+        return this.size;
+    }
+
+    /**
+     * Method is used to check if an exercise is kept as it is, its parts can then not be read
+     *
+     * @param index the index of the exercise
+     * @return true if it is kept as it is
+     */
+    public boolean isRaw(int index) {
+
+        return this.nameIds[index] == RAW;
+    }
+
+    /**
+     * Method is used to get the id of the name of an exercise, two exercises with the same id have the same name
+     *
+     * @param index the index of the exercise
+     * @return the id, -1 if the exercise is kept as it is
+     */
+    public int getNameId(int index) {
+
+        return this.nameIds[index];
+    }
+
+    /**
+     * Method is used to get the name of an exercise
+     *
+     * @param index the index of the exercise
+     * @return the name, null if the exercise is kept as it is
+     */
+    public String getName(int index) {
+
+        return this.isRaw(index) ? null : this.names.valueOf(this.nameIds[index]);
+    }
+
+    /**
+     * Method is used to get the number of sets of an exercise
+     *
+     * @param index the index of the exercise
+     * @return the number of sets, 0 if the exercise is kept as it is
+     */
+    public int getSets(int index) {
+
+        return this.isRaw(index) ? 0 : this.sets[index];
+    }
+
+    /**
+     * Method is used to get the number of reps per set of an exercise
+     *
+     * @param index the index of the exercise
+     * @return the number of reps, 0 if the exercise is kept as it is
+     */
+    public int getReps(int index) {
+
+        return this.isRaw(index) ? 0 : this.reps[index];
+    }
+
+    /**
+     * Method is used to get the intensity (weight or time) of an exercise
+     *
+     * @param index the index of the exercise
+     * @return the intensity, 0 if the exercise is kept as it is
+     */
+    public float getIntensity(int index) {
+
+        return this.isRaw(index) ? 0 : this.intensities[index];
+    }
+
+    /**
+     * Method is used to get the unit of the intensity of an exercise
+     *
+     * @param index the index of the exercise
+     * @return the unit, null if the exercise is kept as it is
+     */
+    public ExerciseUnit getUnit(int index) {
+
+        return this.isRaw(index) ? null : ExerciseUnit.values()[this.units[index]];
+    }
+
+    /**
+     * Method is used to get an exercise the way it is logged (name_sets_reps_intensity)
+     *
+     * @param index the index of the exercise
+     * @return the exercise
+     */
+    public String getRaw(int index) {
+
+        return this.isRaw(index) ? this.raw[index] : this.join(index, "_");
+    }
+
+    /**
+     * Method is used to get an exercise the way it is logged, the same as getRaw
+     *
+     * @param index the index of the exercise
+     * @return the exercise
+     */
+    @Override
+    public String get(int index) {
+
+        if (index < 0 || index >= this.size) {
+
+            throw new IndexOutOfBoundsException("Index " + index + " Out Of Bounds For Length " + this.size);
+        }
+
+        return this.getRaw(index);
+    }
+
+    /**
+     * Method is used to get an exercise the way it is displayed (name | sets | reps | intensity)
+     *
+     * @param index the index of the exercise
+     * @return the exercise
+     */
+    public String format(int index) {
+
+        return this.isRaw(index) ? this.raw[index].replace("_", " | ") : this.join(index, " | ");
+    }
+
+    /**
+     * Method is used to get all exercises the way they are displayed (name | sets | reps | intensity)
+     *
+     * @return the exercises, in order
+     */
+    public ArrayList<String> format() {
+
+        ArrayList<String> formatted = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+
+            formatted.add(this.format(i));
+        }
+
+        return formatted;
+    }
+
+    /**
+     * Method is used to get the number of sets of all exercises
+     *
+     * @return the number of sets
+     */
+    public int getTotalSets() {
+
+        int total = 0;
+        for (int i = 0; i < this.size; i++) {
+
+            total += this.getSets(i);
+        }
+
+        return total;
+    }
+
+    /**
+     * Method is used to get the number of reps of all exercises, all sets included
+     *
+     * @return the number of reps
+     */
+    public int getTotalReps() {
+
+        int total = 0;
+        for (int i = 0; i < this.size; i++) {
+
+            total += this.getSets(i) * this.getReps(i);
+        }
+
+        return total;
+    }
+
+    /**
+     * Method is used to get the load of all exercises that are done with weights, sets times reps times weight
+     *
+     * @return the load in kilograms
+     */
+    public double getTotalLoad() {
+
+        return this.getTotalLoad(RAW);
+    }
+
+    /**
+     * Method is used to get the load of all exercises with a name that are done with weights
+     *
+     * @param nameId the id of the name, all names if it is -1
+     * @return the load in kilograms
+     */
+    public double getTotalLoad(int nameId) {
+
+        double total = 0;
+        for (int i = 0; i < this.size; i++) {
+
+            boolean isCounted = !this.isRaw(i) && (nameId == RAW || this.nameIds[i] == nameId);
+            if (isCounted && this.units[i] == ExerciseUnit.KG.ordinal()) {
+
+                total += (double) this.sets[i] * this.reps[i] * this.intensities[i];
+            }
+        }
+
+        return total;
+    }
+
+    /* Class is used by a logger to store its workouts as columns, every unit of its collection is then packed into
+     * columns once it is loaded or changed (see FragmentPacker) */
+    public static class Packer implements FragmentPacker {
+
+        private FragmentDictionary names; // names of exercises, shared by all workouts
+
+        /**
+         * Constructor
+         *
+         * @param names the dictionary that names of exercises are stored in
+         */
+        public Packer(FragmentDictionary names) {
+
+            this.names = names;
+        }
+
+        @Override
+        public List<String> pack(List<String> fragments) {
+
+            return WorkoutColumns.of(fragments, this.names);
+        }
+
+        @Override
+        public boolean isPacked(List<String> fragments) {
+
+            return fragments instanceof WorkoutColumns && ((WorkoutColumns) fragments).names == this.names;
+        }
+    }
+}
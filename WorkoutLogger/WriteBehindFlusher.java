@@ -0,0 +1,191 @@
+/* This class is used by DataCollection in write behind mode. It runs a background thread that saves the changes
+ * made to a collection. When a change is scheduled the thread waits for at most the flush delay, so that all
+ * changes made in the meantime are saved with one single write (group commit). flush can be used to save right
+ * away and wait until it is done.
+ *
+ * A write that fails, with an IOException or any other exception, is reported by the next flush (or close) and the
+ * thread keeps running, the collection then rewrites everything with the next write. If the thread has stopped
+ * anyway (e.g. it ran out of memory), flush throws instead of waiting for a write that never comes.
+ *
+ * Author @qpeano [created 2026-10-18 | last updated: 2026-10-18]
+ */
+
+import java.io.IOException;
+
+public class WriteBehindFlusher implements Runnable {
+
+    private DataCollection collection; // the collection whose changes are saved
+    private long maxDelay; // the longest time in milliseconds a change waits before it is saved
+    private Thread thread; // the background thread
+    private boolean isRunning; // false when flusher has been closed
+    private boolean isScheduled; // if there are changes that have not been saved
+    private long scheduledAt; // when the oldest change that has not been saved was scheduled
+    private long requested; // number of times flush has been called
+    private long completed; // number of flush calls that have been handled
+    private IOException failure; // the last thing that went wrong while saving, null if nothing has
+
+    /* CONSTRUCTORS */
+
+    // ctor 1, starts a background thread that saves changes of collection at most maxDelay milliseconds after they are made
+    public WriteBehindFlusher(DataCollection collection, long maxDelay) {
+
+        this.collection = collection;
+        this.maxDelay = maxDelay;
+        this.isRunning = true;
+
+        this.thread = new Thread(this, "flusher-" + collection.getPath());
+        this.thread.setDaemon(true); // does not keep the program alive, close should be called to save the last changes
+        this.thread.start();
+    }
+
+    /* INTERNAL */
+
+    // this method is used to check if a flush has been asked for that the thread has not handled yet
+    private boolean isFlushRequested() {
+
+        return this.requested > this.completed;
+    }
+
+    /* USER INTERFACE */
+
+    // this method is used to let the flusher know that there are changes to save
+    public synchronized void schedule() {
+
+        if (!this.isScheduled) {
+
+            this.isScheduled = true;
+            this.scheduledAt = System.currentTimeMillis();
+            this.notifyAll();
+        }
+    }
+
+    // this method is used to save all changes scheduled so far right away and wait until they are saved
+    // throws exception if something has gone wrong while saving since the last time flush was called, or if the
+    // thread has stopped before the changes were saved
+    public synchronized void flush() throws IOException {
+
+        long ticket = ++this.requested; // every flush started after this call covers the changes made before it
+        this.notifyAll();
+
+        while (this.completed < ticket && this.thread.isAlive()) {
+
+            try {
+
+                this.wait();
+            }
+            catch (InterruptedException exception) {
+
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted While Waiting For Flush Of Collection: " + this.collection.getPath());
+            }
+        }
+
+        if (this.failure != null) {
+
+            IOException exception = this.failure;
+            this.failure = null;
+            throw exception;
+        }
+
+        if (this.completed < ticket && this.isRunning) { // thread died, nothing would ever save the changes
+
+            throw new IOException("Flusher Has Stopped, Changes Were Not Saved In Collection: "
+                    + this.collection.getPath());
+        }
+    }
+
+    // this method is used to save all changes and stop the background thread
+    // throws exception if something has gone wrong while saving since the last time flush was called
+    public void close() throws IOException {
+
+        try {
+
+            this.flush();
+        }
+        finally { // thread is stopped even if saving failed
+
+            synchronized (this) {
+
+                this.isRunning = false;
+                this.notifyAll();
+            }
+
+            try {
+
+                this.thread.join();
+            }
+            catch (InterruptedException exception) {
+
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // this method is run by the background thread, it saves changes until the flusher is closed
+    @Override
+    public void run() {
+
+        while (true) {
+
+            long ticket;
+
+            synchronized (this) {
+
+                try {
+
+                    while (this.isRunning && !this.isScheduled && !this.isFlushRequested()) { // nothing to do
+
+                        this.wait();
+                    }
+
+                    if (!this.isRunning && !this.isScheduled && !this.isFlushRequested()) {
+
+                        return;
+                    }
+
+                    // waits for more changes, until the oldest change has waited long enough or someone calls flush
+                    long deadline = this.scheduledAt + this.maxDelay;
+                    long now = System.currentTimeMillis();
+
+                    while (this.isRunning && this.isScheduled && !this.isFlushRequested() && now < deadline) {
+
+                        this.wait(deadline - now);
+                        now = System.currentTimeMillis();
+                    }
+                }
+                catch (InterruptedException exception) {
+
+                    return;
+                }
+
+                ticket = this.requested;
+                this.isScheduled = false; // changes made from now on are scheduled again
+            }
+
+            IOException failure = null;
+            try {
+
+                this.collection.writePending();
+            }
+            catch (IOException exception) {
+
+                failure = exception;
+            }
+            catch (RuntimeException exception) { // e.g. a unit that could not be loaded, thread must not die of it
+
+                failure = new IOException("Failed To Save Collection: " + this.collection.getPath(), exception);
+            }
+
+            synchronized (this) {
+
+                if (failure != null) { // collection rewrites everything on the next change or flush
+
+                    this.failure = failure;
+                }
+
+                this.completed = Math.max(this.completed, ticket);
+                this.notifyAll();
+            }
+        }
+    }
+}